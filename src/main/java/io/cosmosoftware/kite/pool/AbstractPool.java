@@ -12,6 +12,24 @@ package io.cosmosoftware.kite.pool;
  */
 abstract class AbstractPool<T> implements Pool<T> {
 
+  /**
+   * The metrics of the pool, updated by the implementations when an object is handed out or a
+   * request times out.
+   */
+  protected final PoolMetrics metrics = new PoolMetrics(this::getIdleCount);
+
+  /**
+   * Gets the number of idle objects in the pool.
+   *
+   * @return the idle count
+   */
+  public abstract int getIdleCount();
+
+  @Override
+  public PoolMetrics getMetrics() {
+    return metrics;
+  }
+
   /**
    * Handle invalid return.
    *
@@ -37,9 +55,11 @@ abstract class AbstractPool<T> implements Pool<T> {
    */
   @Override
   public final void release(T t) {
+    metrics.recordRelease();
     if (isValid(t)) {
       returnToPool(t);
     } else {
+      metrics.recordValidationFailure();
       handleInvalidReturn(t);
     }
   }
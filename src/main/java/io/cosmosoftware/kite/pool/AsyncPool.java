@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.pool;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a blocking pool that can also hand out its objects asynchronously, without keeping a
+ * thread waiting while no object is available.
+ *
+ * @param <T> the type parameter
+ */
+public interface AsyncPool<T> extends BlockingPool<T> {
+
+  /**
+   * Returns a future that completes with an instance of type T from the pool as soon as one is
+   * available, in the same FCFS order as the blocking calls.
+   * <p>
+   * If no object becomes available within the specified wait time, the future completes
+   * exceptionally with a {@link TimeElapsedException}. Cancelling the future withdraws the request
+   * from the pool. The future may be completed by the thread releasing the object, so long running
+   * dependent stages should be run with one of the <tt>*Async</tt> methods.
+   *
+   * @param time amount of time to wait before giving up, in units of <tt>unit</tt>
+   * @param unit a <tt>TimeUnit</tt> determining how to interpret the <tt>time</tt> parameter
+   * @return a future of an instance of the Object of type T from the pool.
+   */
+  CompletableFuture<T> acquireAsync(long time, TimeUnit unit);
+}
@@ -51,8 +51,10 @@ public final class BoundedBlockingPool<T> extends AbstractPool<T> implements Blo
     if (!shutdownCalled) {
       T t = null;
 
+      long start = System.nanoTime();
       try {
         t = objects.take();
+        metrics.recordAcquire(System.nanoTime() - start);
       } catch (InterruptedException ie) {
         Thread.currentThread().interrupt();
       }
@@ -68,6 +70,7 @@ public final class BoundedBlockingPool<T> extends AbstractPool<T> implements Blo
       T t = null;
 
       InterruptedException e = null;
+      long start = System.nanoTime();
       try {
         t = objects.poll(timeOut, unit);
       } catch (InterruptedException ie) {
@@ -78,8 +81,10 @@ public final class BoundedBlockingPool<T> extends AbstractPool<T> implements Blo
           throw new TimeElapsedException(e);
         }
         if (t == null) {
+          metrics.recordTimeout();
           throw new TimeElapsedException();
         }
+        metrics.recordAcquire(System.nanoTime() - start);
         return t;
       }
     }
@@ -87,6 +92,11 @@ public final class BoundedBlockingPool<T> extends AbstractPool<T> implements Blo
     throw new IllegalStateException("Object pool is already shutdown");
   }
 
+  @Override
+  public int getIdleCount() {
+    return objects.size();
+  }
+
   @Override
   protected void handleInvalidReturn(T t) {
 
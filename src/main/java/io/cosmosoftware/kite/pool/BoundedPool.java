@@ -57,6 +57,7 @@ public class BoundedPool<T> extends AbstractPool<T> {
     if (!shutdownCalled) {
       if (permits.tryAcquire()) {
         t = objects.poll();
+        metrics.recordAcquire(0L);
       }
     } else {
       throw new IllegalStateException("Object pool already shutdown");
@@ -65,6 +66,11 @@ public class BoundedPool<T> extends AbstractPool<T> {
     return t;
   }
 
+  @Override
+  public int getIdleCount() {
+    return objects.size();
+  }
+
   @Override
   protected void handleInvalidReturn(T t) {
 
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.pool;
+
+import io.cosmosoftware.kite.report.KiteLogger;
+
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A blocking pool that creates its objects on demand, between a minimum number of idle objects and
+ * a maximum total size.
+ * <p>
+ * Only <tt>minIdle</tt> objects are created when the pool is constructed. Further objects are
+ * created by the first {@link #get()} that finds no idle object, as long as fewer than
+ * <tt>maxSize</tt> objects exist. A background evictor periodically invalidates objects that have
+ * stayed idle longer than the idle timeout, or that are no longer valid, while keeping at least
+ * <tt>minIdle</tt> of them.
+ *
+ * @param <T> the type parameter
+ */
+public final class ElasticBlockingPool<T> extends AbstractPool<T> implements BlockingPool<T> {
+
+  private static final KiteLogger logger =
+      KiteLogger.getLogger(ElasticBlockingPool.class.getName());
+
+  final private ObjectFactory<T> objectFactory;
+  final private int minIdle;
+  final private int maxSize;
+  final private long idleTimeout;
+  final private Validator<T> validator;
+  private final AtomicInteger created = new AtomicInteger();
+  private final ScheduledExecutorService evictor;
+  // most recently released objects first, so the oldest ones are evicted from the tail
+  private final Deque<IdleObject<T>> objects = new ConcurrentLinkedDeque<>();
+  private final Semaphore permits;
+  private volatile boolean shutdownCalled;
+
+  /**
+   * Instantiates a new Elastic blocking pool.
+   *
+   * @param minIdle the minimum number of idle objects kept by the evictor
+   * @param maxSize the maximum number of objects created by the pool
+   * @param idleTimeout the time in milliseconds after which an idle object can be evicted
+   * @param validator the validator
+   * @param objectFactory the object factory
+   */
+  public ElasticBlockingPool(int minIdle, int maxSize, long idleTimeout, Validator<T> validator,
+      ObjectFactory<T> objectFactory) {
+    super();
+    if (minIdle < 0 || maxSize < 1 || minIdle > maxSize) {
+      throw new IllegalArgumentException(
+          "Invalid pool sizing: minIdle = " + minIdle + ", maxSize = " + maxSize);
+    }
+
+    this.objectFactory = objectFactory;
+    this.minIdle = minIdle;
+    this.maxSize = maxSize;
+    this.idleTimeout = idleTimeout;
+    this.validator = validator;
+    this.permits = new Semaphore(maxSize, true);
+
+    for (int i = 0; i < minIdle; i++) {
+      created.incrementAndGet();
+      objects.offerFirst(new IdleObject<>(objectFactory.createNew()));
+    }
+
+    shutdownCalled = false;
+
+    long interval = Math.max(idleTimeout / 2, 1L);
+    evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "ElasticBlockingPool-evictor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    evictor.scheduleWithFixedDelay(this::evict, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  private void clearResources() {
+    IdleObject<T> idle;
+    while ((idle = objects.pollFirst()) != null) {
+      destroy(idle.object);
+    }
+  }
+
+  private void destroy(T t) {
+    created.decrementAndGet();
+    validator.invalidate(t);
+  }
+
+  /**
+   * Invalidates the objects that have been idle for longer than the idle timeout, oldest first,
+   * as long as more than <tt>minIdle</tt> objects are idle. Idle objects that fail validation are
+   * invalidated regardless.
+   */
+  private void evict() {
+    try {
+      long now = System.currentTimeMillis();
+      Iterator<IdleObject<T>> iterator = objects.descendingIterator();
+      while (iterator.hasNext() && !shutdownCalled) {
+        IdleObject<T> idle = iterator.next();
+        boolean expired = now - idle.since > idleTimeout && objects.size() > minIdle;
+        if ((expired || !validator.isValid(idle.object)) && objects.removeLastOccurrence(idle)) {
+          destroy(idle.object);
+        }
+      }
+    } catch (RuntimeException e) {
+      // keep the evictor scheduled, the next run will try again
+      logger.error("Could not evict idle objects", e);
+    }
+  }
+
+  public T get() {
+    checkShutdown();
+    long start = System.nanoTime();
+    try {
+      permits.acquire();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    T t = take();
+    metrics.recordAcquire(System.nanoTime() - start);
+    return t;
+  }
+
+  public T get(long timeOut, TimeUnit unit) throws TimeElapsedException {
+    checkShutdown();
+    long start = System.nanoTime();
+    try {
+      if (!permits.tryAcquire(timeOut, unit)) {
+        metrics.recordTimeout();
+        throw new TimeElapsedException();
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new TimeElapsedException(ie);
+    }
+    T t = take();
+    metrics.recordAcquire(System.nanoTime() - start);
+    return t;
+  }
+
+  /**
+   * Takes an idle object, or creates one if none is idle and the pool is not at its maximum size.
+   * The caller must hold a permit, which is given back if the object could not be created or the
+   * pool is shut down, so that the next thread blocked in {@link #get()} wakes up in turn.
+   */
+  private T take() {
+    while (true) {
+      if (shutdownCalled) {
+        permits.release();
+        checkShutdown();
+      }
+      IdleObject<T> idle = objects.pollFirst();
+      if (idle != null) {
+        return idle.object;
+      }
+      int count = created.get();
+      if (count < maxSize) {
+        if (created.compareAndSet(count, count + 1)) {
+          try {
+            return objectFactory.createNew();
+          } catch (RuntimeException e) {
+            created.decrementAndGet();
+            permits.release();
+            throw e;
+          }
+        }
+      } else {
+        // an object is being released by a thread that already gave its permit back
+        Thread.yield();
+      }
+    }
+  }
+
+  private void checkShutdown() {
+    if (shutdownCalled) {
+      throw new IllegalStateException("Object pool is already shutdown");
+    }
+  }
+
+  /**
+   * Gets the number of objects currently created by the pool, idle or in use.
+   *
+   * @return the created count
+   */
+  public int getCreatedCount() {
+    return created.get();
+  }
+
+  @Override
+  public int getIdleCount() {
+    return objects.size();
+  }
+
+  @Override
+  protected void handleInvalidReturn(T t) {
+    destroy(t);
+    permits.release();
+  }
+
+  @Override
+  protected boolean isValid(T t) {
+    return validator.isValid(t);
+  }
+
+  @Override
+  protected void returnToPool(T t) {
+    if (shutdownCalled) {
+      destroy(t);
+      return;
+    }
+    objects.offerFirst(new IdleObject<>(t));
+    permits.release();
+  }
+
+  public void shutdown() {
+    shutdownCalled = true;
+
+    evictor.shutdownNow();
+
+    // wake the threads blocked in get(), each one gives its permit back to the next one
+    permits.release(maxSize);
+
+    clearResources();
+  }
+
+  private static final class IdleObject<T> {
+
+    private final T object;
+    private final long since = System.currentTimeMillis();
+
+    /**
+     * Instantiates a new Idle object.
+     *
+     * @param object the pooled object
+     */
+    private IdleObject(T object) {
+      this.object = object;
+    }
+  }
+}
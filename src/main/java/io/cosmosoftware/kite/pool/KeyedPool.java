@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.pool;
+
+import io.cosmosoftware.kite.pool.Pool.Validator;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A pool of objects partitioned by key, with a maximum number of objects per key and a global
+ * maximum number of objects in use across all keys.
+ * <p>
+ * Objects are created lazily by the {@link ObjectFactory} registered for their key. When the pool
+ * is saturated, the waiting requests are served in arrival order across keys: a freed slot goes
+ * to the oldest request that can actually be served, so a request waiting for a scarce key never
+ * holds back the requests for the other keys. The internal lock is only held to update the
+ * bookkeeping, never while waiting or while creating an object.
+ *
+ * @param <K> the key type parameter
+ * @param <T> the object type parameter
+ */
+public final class KeyedPool<K, T> {
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<K, Partition> partitions = new LinkedHashMap<>();
+  private final AtomicInteger idleCount = new AtomicInteger();
+  private final PoolMetrics metrics = new PoolMetrics(idleCount::get);
+  private final int globalCapacity;
+  private final Validator<T> validator;
+  private int inUse;
+  private long sequence;
+  private volatile boolean shutdownCalled;
+
+  /**
+   * Instantiates a new Keyed pool.
+   *
+   * @param globalCapacity the maximum number of objects in use across all keys
+   * @param validator the validator
+   */
+  public KeyedPool(int globalCapacity, Validator<T> validator) {
+    this.globalCapacity = globalCapacity;
+    this.validator = validator;
+  }
+
+  /**
+   * Registers a key with its own object factory and maximum number of objects.
+   *
+   * @param key the key
+   * @param maxSize the maximum number of objects created for this key
+   * @param objectFactory the object factory for this key
+   * @return this keyed pool
+   */
+  public KeyedPool<K, T> addKey(K key, int maxSize, ObjectFactory<T> objectFactory) {
+    lock.lock();
+    try {
+      if (partitions.containsKey(key)) {
+        throw new IllegalArgumentException("Key " + key + " is already registered");
+      }
+      partitions.put(key, new Partition(maxSize, objectFactory));
+    } finally {
+      lock.unlock();
+    }
+    return this;
+  }
+
+  private void checkShutdown() {
+    if (shutdownCalled) {
+      throw new IllegalStateException("Object pool is already shutdown");
+    }
+  }
+
+  /**
+   * Serves the oldest waiting requests that can be served, until the global capacity is reached or
+   * no waiting request can be served. Must be called with the lock held.
+   */
+  private void dispatch() {
+    while (inUse < globalCapacity) {
+      Partition next = null;
+      for (Partition partition : partitions.values()) {
+        Waiter head = partition.waiters.peek();
+        if (head != null && partition.canServe()
+            && (next == null || head.sequence < next.waiters.peek().sequence)) {
+          next = partition;
+        }
+      }
+      if (next == null) {
+        return;
+      }
+      Waiter waiter = next.waiters.poll();
+      grant(next, waiter);
+      waiter.condition.signal();
+    }
+  }
+
+  /**
+   * Returns an object for the given key, waiting up to the specified wait time if necessary.
+   *
+   * @param key the key
+   * @param time amount of time to wait before giving up, in units of <tt>unit</tt>
+   * @param unit a <tt>TimeUnit</tt> determining how to interpret the <tt>time</tt> parameter
+   * @return an object of the given key
+   * @throws InterruptedException if interrupted while waiting
+   * @throws TimeElapsedException the time elapsed exception
+   */
+  public T get(K key, long time, TimeUnit unit) throws InterruptedException, TimeElapsedException {
+    long start = System.nanoTime();
+    Partition partition;
+    Waiter waiter = new Waiter();
+    lock.lock();
+    try {
+      checkShutdown();
+      partition = partitions.get(key);
+      if (partition == null) {
+        throw new IllegalArgumentException("Unknown key " + key);
+      }
+      if (partition.waiters.isEmpty() && inUse < globalCapacity && partition.canServe()) {
+        grant(partition, waiter);
+      } else {
+        waiter.sequence = sequence++;
+        partition.waiters.offer(waiter);
+        long nanos = unit.toNanos(time);
+        try {
+          while (!waiter.granted) {
+            if (shutdownCalled) {
+              partition.waiters.remove(waiter);
+              checkShutdown();
+            }
+            if (nanos <= 0L) {
+              partition.waiters.remove(waiter);
+              metrics.recordTimeout();
+              throw new TimeElapsedException();
+            }
+            nanos = waiter.condition.awaitNanos(nanos);
+          }
+        } catch (InterruptedException e) {
+          if (waiter.granted) {
+            // the slot was granted at the same time, give it to the next request
+            ungrant(partition, waiter);
+          } else {
+            partition.waiters.remove(waiter);
+          }
+          throw e;
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    T t = waiter.object;
+    if (t == null) {
+      try {
+        t = partition.objectFactory.createNew();
+      } catch (RuntimeException e) {
+        lock.lock();
+        try {
+          ungrant(partition, waiter);
+        } finally {
+          lock.unlock();
+        }
+        throw e;
+      }
+    }
+    metrics.recordAcquire(System.nanoTime() - start);
+    return t;
+  }
+
+  /**
+   * Gets the number of idle objects for the given key.
+   *
+   * @param key the key
+   * @return the idle count
+   */
+  public int getIdleCount(K key) {
+    lock.lock();
+    try {
+      Partition partition = partitions.get(key);
+      return partition == null ? 0 : partition.idle.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of objects in use for the given key.
+   *
+   * @param key the key
+   * @return the in use count
+   */
+  public int getInUseCount(K key) {
+    lock.lock();
+    try {
+      Partition partition = partitions.get(key);
+      return partition == null ? 0 : partition.inUse;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the metrics of the pool, across all keys.
+   *
+   * @return the metrics
+   */
+  public PoolMetrics getMetrics() {
+    return metrics;
+  }
+
+  private void grant(Partition partition, Waiter waiter) {
+    inUse++;
+    partition.inUse++;
+    waiter.object = partition.idle.poll();
+    if (waiter.object == null) {
+      partition.created++;
+    } else {
+      idleCount.decrementAndGet();
+    }
+    waiter.granted = true;
+  }
+
+  /**
+   * Releases the object of the given key and puts it back in the pool if it is still valid.
+   *
+   * @param key the key
+   * @param t the object
+   */
+  public void release(K key, T t) {
+    metrics.recordRelease();
+    boolean valid = validator.isValid(t);
+    if (!valid) {
+      metrics.recordValidationFailure();
+    }
+    lock.lock();
+    try {
+      Partition partition = partitions.get(key);
+      if (partition == null) {
+        throw new IllegalArgumentException("Unknown key " + key);
+      }
+      inUse--;
+      partition.inUse--;
+      if (valid && !shutdownCalled) {
+        partition.idle.offer(t);
+        idleCount.incrementAndGet();
+        t = null;
+      } else {
+        partition.created--;
+      }
+      dispatch();
+    } finally {
+      lock.unlock();
+    }
+    if (t != null) {
+      validator.invalidate(t);
+    }
+  }
+
+  /**
+   * Shuts down the pool: the waiting requests fail and the idle objects are invalidated.
+   */
+  public void shutdown() {
+    Deque<T> objects = new ArrayDeque<>();
+    lock.lock();
+    try {
+      shutdownCalled = true;
+      for (Partition partition : partitions.values()) {
+        for (Waiter waiter : partition.waiters) {
+          waiter.condition.signal();
+        }
+        partition.created -= partition.idle.size();
+        objects.addAll(partition.idle);
+        partition.idle.clear();
+      }
+      idleCount.set(0);
+    } finally {
+      lock.unlock();
+    }
+    for (T t : objects) {
+      validator.invalidate(t);
+    }
+  }
+
+  /**
+   * Gives back a slot granted to a request that cannot use it. Must be called with the lock held.
+   */
+  private void ungrant(Partition partition, Waiter waiter) {
+    inUse--;
+    partition.inUse--;
+    if (waiter.object == null) {
+      partition.created--;
+    } else {
+      partition.idle.offerFirst(waiter.object);
+      idleCount.incrementAndGet();
+    }
+    dispatch();
+  }
+
+  private final class Partition {
+
+    private final Deque<T> idle = new ArrayDeque<>();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final int maxSize;
+    private final ObjectFactory<T> objectFactory;
+    private int created;
+    private int inUse;
+
+    /**
+     * Instantiates a new Partition.
+     *
+     * @param maxSize the maximum number of objects
+     * @param objectFactory the object factory
+     */
+    private Partition(int maxSize, ObjectFactory<T> objectFactory) {
+      this.maxSize = maxSize;
+      this.objectFactory = objectFactory;
+    }
+
+    private boolean canServe() {
+      return !idle.isEmpty() || created < maxSize;
+    }
+  }
+
+  private final class Waiter {
+
+    private final Condition condition = lock.newCondition();
+    private boolean granted;
+    private T object;
+    private long sequence;
+  }
+}
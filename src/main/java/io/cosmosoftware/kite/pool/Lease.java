@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.pool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A time limited hold on an object taken from a {@link LeasingPool}.
+ * <p>
+ * The object must be given back with {@link #release()} (or {@link #close()}) before the deadline.
+ * Past the deadline the pool considers the object leaked and reclaims it: the holder must then
+ * stop using it, and a later {@link #release()} has no effect.
+ *
+ * @param <T> the type parameter
+ */
+public final class Lease<T> implements AutoCloseable {
+
+  private final AtomicBoolean ended = new AtomicBoolean();
+  private final Throwable acquiredAt;
+  private final LeasingPool<T> pool;
+  private final T object;
+  private volatile long deadline;
+
+  /**
+   * Instantiates a new Lease.
+   *
+   * @param pool the pool the object was taken from
+   * @param object the leased object
+   * @param duration the lease duration in milliseconds
+   */
+  Lease(LeasingPool<T> pool, T object, long duration) {
+    this.pool = pool;
+    this.object = object;
+    this.deadline = System.currentTimeMillis() + duration;
+    this.acquiredAt = new Throwable("Lease acquired by " + Thread.currentThread().getName());
+  }
+
+  @Override
+  public void close() {
+    release();
+  }
+
+  /**
+   * Ends the lease without returning the object to the pool. Returns false if the lease had
+   * already ended.
+   */
+  boolean end() {
+    return ended.compareAndSet(false, true);
+  }
+
+  /**
+   * Gets the stack trace of the thread that acquired the lease, as a throwable.
+   *
+   * @return the acquisition trace
+   */
+  public Throwable getAcquiredAt() {
+    return acquiredAt;
+  }
+
+  /**
+   * Gets the deadline of the lease, in milliseconds since the epoch.
+   *
+   * @return the deadline
+   */
+  public long getDeadline() {
+    return deadline;
+  }
+
+  /**
+   * Gets the leased object.
+   *
+   * @return the object
+   */
+  public T getObject() {
+    return object;
+  }
+
+  /**
+   * Whether the lease has been released or reclaimed.
+   *
+   * @return true if the lease has ended
+   */
+  public boolean isEnded() {
+    return ended.get();
+  }
+
+  /**
+   * Returns the object to the pool.
+   *
+   * @return false if the lease had already been released or reclaimed
+   */
+  public boolean release() {
+    return pool.release(this);
+  }
+
+  /**
+   * Extends the lease to the given duration from now.
+   *
+   * @param duration the new lease duration
+   * @param unit the unit of the duration
+   * @return false if the lease has already ended
+   */
+  public boolean renew(long duration, TimeUnit unit) {
+    if (ended.get()) {
+      return false;
+    }
+    deadline = System.currentTimeMillis() + unit.toMillis(duration);
+    return !ended.get();
+  }
+
+  @Override
+  public String toString() {
+    return "Lease[" + object + "]";
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.pool;
+
+import io.cosmosoftware.kite.report.KiteLogger;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out the objects of a {@link BlockingPool} as {@link Lease}s with a deadline.
+ * <p>
+ * A background reaper reclaims the leases that are still held past their deadline, for instance
+ * because the runner holding them crashed. The object of such a lease is released to the
+ * underlying pool, which validates it before making it available again, and the leak is reported
+ * to the {@link LeakListener} with the stack trace of the thread that acquired the lease.
+ *
+ * @param <T> the type parameter
+ */
+public final class LeasingPool<T> {
+
+  private static final KiteLogger logger = KiteLogger.getLogger(LeasingPool.class.getName());
+
+  private final Set<Lease<T>> leases = ConcurrentHashMap.newKeySet();
+  private final BlockingPool<T> pool;
+  private final long leaseDuration;
+  private final LeakListener<T> leakListener;
+  private final ScheduledExecutorService reaper;
+
+  /**
+   * Instantiates a new Leasing pool that logs the leaks.
+   *
+   * @param pool the pool to lease objects from
+   * @param leaseDuration the default lease duration in milliseconds
+   */
+  public LeasingPool(BlockingPool<T> pool, long leaseDuration) {
+    this(pool, leaseDuration, (object, acquiredAt) -> logger.warn(
+        "Lease of " + object + " expired, reclaiming it. It was acquired at:", acquiredAt));
+  }
+
+  /**
+   * Instantiates a new Leasing pool.
+   *
+   * @param pool the pool to lease objects from
+   * @param leaseDuration the default lease duration in milliseconds
+   * @param leakListener the listener notified of each reclaimed lease
+   */
+  public LeasingPool(BlockingPool<T> pool, long leaseDuration, LeakListener<T> leakListener) {
+    this.pool = pool;
+    this.leaseDuration = leaseDuration;
+    this.leakListener = leakListener;
+
+    long interval = Math.max(Math.min(leaseDuration / 4, 1000L), 10L);
+    this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "LeasingPool-reaper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.reaper.scheduleWithFixedDelay(this::reclaimExpired, interval, interval,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Leases an object, waiting indefinitely until one is available.
+   *
+   * @return the lease, or null if the thread was interrupted while waiting
+   */
+  public Lease<T> get() {
+    T t = pool.get();
+    return t == null ? null : lease(t);
+  }
+
+  /**
+   * Leases an object, waiting up to the specified wait time for one to become available.
+   *
+   * @param time amount of time to wait before giving up, in units of <tt>unit</tt>
+   * @param unit a <tt>TimeUnit</tt> determining how to interpret the <tt>time</tt> parameter
+   * @return the lease
+   * @throws InterruptedException if interrupted while waiting
+   * @throws TimeElapsedException the time elapsed exception
+   */
+  public Lease<T> get(long time, TimeUnit unit) throws InterruptedException, TimeElapsedException {
+    return lease(pool.get(time, unit));
+  }
+
+  /**
+   * Gets the number of leases currently held.
+   *
+   * @return the lease count
+   */
+  public int getLeaseCount() {
+    return leases.size();
+  }
+
+  private Lease<T> lease(T t) {
+    Lease<T> lease = new Lease<>(this, t, leaseDuration);
+    leases.add(lease);
+    return lease;
+  }
+
+  private void reclaimExpired() {
+    long now = System.currentTimeMillis();
+    for (Lease<T> lease : leases) {
+      if (lease.getDeadline() < now && lease.end()) {
+        leases.remove(lease);
+        try {
+          leakListener.onLeak(lease.getObject(), lease.getAcquiredAt());
+        } catch (RuntimeException e) {
+          logger.error("Leak listener failed for " + lease, e);
+        }
+        try {
+          pool.release(lease.getObject());
+        } catch (RuntimeException e) {
+          logger.error("Could not reclaim " + lease, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the object of the lease to the pool, unless the lease has already ended.
+   */
+  boolean release(Lease<T> lease) {
+    if (!lease.end()) {
+      return false;
+    }
+    leases.remove(lease);
+    pool.release(lease.getObject());
+    return true;
+  }
+
+  /**
+   * Stops the reaper and shuts down the underlying pool.
+   */
+  public void shutdown() {
+    reaper.shutdownNow();
+    pool.shutdown();
+  }
+
+  /**
+   * Receives the objects whose lease expired before being released.
+   *
+   * @param <T> the type parameter
+   */
+  public interface LeakListener<T> {
+
+    /**
+     * Called when a lease is reclaimed, before its object is returned to the pool.
+     *
+     * @param t the leaked object
+     * @param acquiredAt the stack trace of the thread that acquired the lease
+     */
+    void onLeak(T t, Throwable acquiredAt);
+  }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.pool;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded blocking pool whose release path hands the object directly to the longest waiting
+ * thread, or puts it back on a lock-free idle queue when nobody is waiting.
+ * <p>
+ * Unlike {@link BoundedBlockingPool}, no executor is involved: releasing an object never creates
+ * or wakes any thread other than the one that receives it. Waiting threads are parked and served
+ * in FIFO order, together with the asynchronous requests made through {@link #acquireAsync}, which
+ * do not hold any thread while they wait.
+ *
+ * @param <T> the type parameter
+ */
+public final class LockFreeBlockingPool<T> extends AbstractPool<T> implements AsyncPool<T> {
+
+  private static final Object CANCELLED = new Object();
+
+  final private ObjectFactory<T> objectFactory;
+  final private int size;
+  final private Validator<T> validator;
+  private final Queue<T> objects = new ConcurrentLinkedQueue<>();
+  private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+  private final ScheduledThreadPoolExecutor timer;
+  private volatile boolean shutdownCalled;
+
+  /**
+   * Instantiates a new Lock free blocking pool.
+   *
+   * @param size the size
+   * @param validator the validator
+   * @param objectFactory the object factory
+   */
+  public LockFreeBlockingPool(int size, Validator<T> validator, ObjectFactory<T> objectFactory) {
+    super();
+
+    this.objectFactory = objectFactory;
+    this.size = size;
+    this.validator = validator;
+
+    initializeObjects();
+
+    shutdownCalled = false;
+
+    // the timer thread is only started by the first timed asynchronous request
+    timer = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread thread = new Thread(r, "LockFreeBlockingPool-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    timer.setRemoveOnCancelPolicy(true);
+  }
+
+  @Override
+  public CompletableFuture<T> acquireAsync(long time, TimeUnit unit) {
+    checkShutdown();
+    if (waiters.isEmpty()) {
+      T t = objects.poll();
+      if (t != null) {
+        metrics.recordAcquire(0L);
+        return CompletableFuture.completedFuture(t);
+      }
+    }
+
+    long start = System.nanoTime();
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.whenComplete((t, e) -> {
+      if (t != null) {
+        metrics.recordAcquire(System.nanoTime() - start);
+      } else if (e instanceof TimeElapsedException) {
+        metrics.recordTimeout();
+      }
+    });
+    Waiter waiter = new Waiter(future);
+    waiters.offer(waiter);
+    dispatch();
+
+    if (!future.isDone()) {
+      ScheduledFuture<?> timeout = timer.schedule(() -> {
+        if (cancel(waiter) == null) {
+          future.completeExceptionally(new TimeElapsedException());
+        }
+      }, time, unit);
+      future.whenComplete((t, e) -> {
+        timeout.cancel(false);
+        if (future.isCancelled()) {
+          cancel(waiter);
+        }
+      });
+    }
+    return future;
+  }
+
+  private void clearResources() {
+    T t;
+    while ((t = objects.poll()) != null) {
+      validator.invalidate(t);
+    }
+  }
+
+  /**
+   * Matches idle objects with waiting threads until one of the two queues is empty. Called by both
+   * the releasing and the acquiring side after publishing to their own queue, so that a release
+   * racing with a new waiter can never leave the waiter parked next to an idle object.
+   */
+  private void dispatch() {
+    while (!waiters.isEmpty()) {
+      T t = objects.poll();
+      if (t == null) {
+        return;
+      }
+      if (!handOff(t)) {
+        objects.offer(t);
+      }
+    }
+  }
+
+  public T get() {
+    long start = System.nanoTime();
+    try {
+      T t = acquire(false, 0L);
+      metrics.recordAcquire(System.nanoTime() - start);
+      return t;
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  public T get(long timeOut, TimeUnit unit) throws TimeElapsedException {
+    T t;
+    long start = System.nanoTime();
+    try {
+      t = acquire(true, start + unit.toNanos(timeOut));
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new TimeElapsedException(ie);
+    }
+    if (t == null) {
+      metrics.recordTimeout();
+      throw new TimeElapsedException();
+    }
+    metrics.recordAcquire(System.nanoTime() - start);
+    return t;
+  }
+
+  /**
+   * Returns an idle object straight away when no other thread is queued ahead of the caller,
+   * otherwise parks the caller until an object is handed to it or the deadline passes.
+   *
+   * @param timed whether the deadline applies
+   * @param deadline the deadline, as a {@link System#nanoTime()} value
+   * @return the object, or null if the deadline passed
+   * @throws InterruptedException if interrupted while waiting
+   */
+  private T acquire(boolean timed, long deadline) throws InterruptedException {
+    checkShutdown();
+    if (waiters.isEmpty()) {
+      T t = objects.poll();
+      if (t != null) {
+        return t;
+      }
+    }
+
+    Waiter waiter = new Waiter(Thread.currentThread());
+    waiters.offer(waiter);
+    dispatch();
+
+    while (true) {
+      T t = waiter.item();
+      if (t != null) {
+        return t;
+      }
+      if (Thread.interrupted()) {
+        t = cancel(waiter);
+        if (t != null) {
+          // An object was handed over at the same time, keep it in the pool
+          returnToPool(t);
+        }
+        throw new InterruptedException();
+      }
+      if (shutdownCalled) {
+        t = cancel(waiter);
+        if (t != null) {
+          validator.invalidate(t);
+        }
+        checkShutdown();
+      }
+      if (timed) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0L) {
+          return cancel(waiter);
+        }
+        LockSupport.parkNanos(this, remaining);
+      } else {
+        LockSupport.park(this);
+      }
+    }
+  }
+
+  /**
+   * Cancels the waiter, or returns the object that was handed to it before it could be cancelled.
+   */
+  private T cancel(Waiter waiter) {
+    if (waiter.slot.compareAndSet(null, CANCELLED)) {
+      waiters.remove(waiter);
+      return null;
+    }
+    return waiter.item();
+  }
+
+  private void checkShutdown() {
+    if (shutdownCalled) {
+      throw new IllegalStateException("Object pool is already shutdown");
+    }
+  }
+
+  /**
+   * Gives the object to the oldest waiter that has not been cancelled.
+   *
+   * @param t the object
+   * @return false if no thread is waiting
+   */
+  private boolean handOff(T t) {
+    Waiter waiter;
+    while ((waiter = waiters.poll()) != null) {
+      if (waiter.slot.compareAndSet(null, t) && waiter.deliver(t)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int getIdleCount() {
+    return objects.size();
+  }
+
+  @Override
+  protected void handleInvalidReturn(T t) {
+    validator.invalidate(t);
+  }
+
+  private void initializeObjects() {
+    for (int i = 0; i < size; i++) {
+      objects.add(objectFactory.createNew());
+    }
+  }
+
+  @Override
+  protected boolean isValid(T t) {
+    return validator.isValid(t);
+  }
+
+  @Override
+  protected void returnToPool(T t) {
+    if (shutdownCalled) {
+      validator.invalidate(t);
+      return;
+    }
+    if (!handOff(t)) {
+      objects.offer(t);
+      dispatch();
+    }
+  }
+
+  public void shutdown() {
+    shutdownCalled = true;
+
+    timer.shutdownNow();
+
+    Waiter waiter;
+    while ((waiter = waiters.poll()) != null) {
+      if (waiter.future == null) {
+        LockSupport.unpark(waiter.thread);
+      } else if (waiter.slot.compareAndSet(null, CANCELLED)) {
+        waiter.future.completeExceptionally(
+            new IllegalStateException("Object pool is already shutdown"));
+      }
+    }
+
+    clearResources();
+  }
+
+  private final class Waiter {
+
+    private final AtomicReference<Object> slot = new AtomicReference<>();
+    private final Thread thread;
+    private final CompletableFuture<T> future;
+
+    /**
+     * Instantiates a new Waiter for a parked thread.
+     *
+     * @param thread the waiting thread
+     */
+    private Waiter(Thread thread) {
+      this.thread = thread;
+      this.future = null;
+    }
+
+    /**
+     * Instantiates a new Waiter for an asynchronous request.
+     *
+     * @param future the future to complete
+     */
+    private Waiter(CompletableFuture<T> future) {
+      this.thread = null;
+      this.future = future;
+    }
+
+    /**
+     * Wakes the waiting thread, or completes the future, with the object put in the slot.
+     *
+     * @param t the object
+     * @return false if the future had already been cancelled by the caller
+     */
+    private boolean deliver(T t) {
+      if (future == null) {
+        LockSupport.unpark(thread);
+        return true;
+      }
+      return future.complete(t);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T item() {
+      Object o = slot.get();
+      return o == null || o == CANCELLED ? null : (T) o;
+    }
+  }
+}
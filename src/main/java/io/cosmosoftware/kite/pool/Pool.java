@@ -50,6 +50,16 @@ public interface Pool<T> {
    */
   void shutdown();
 
+  /**
+   * Returns the runtime metrics of the pool: acquire latencies, objects in use and idle, timeouts
+   * and validation failures.
+   *
+   * @return the metrics, or <code>null</code> if the pool does not record any
+   */
+  default PoolMetrics getMetrics() {
+    return null;
+  }
+
   /**
    * Represents the functionality to validate an object of the pool and to subsequently perform
    * cleanup activities.
@@ -49,6 +49,92 @@ public final class PoolFactory {
     return new BoundedBlockingPool<T>(size, validator, factory);
   }
 
+  /**
+   * Creates a and returns a new object pool, that is an implementation of the {@link BlockingPool},
+   * which only creates objects when they are requested, up to <tt> maxSize </tt>, and invalidates
+   * the objects that stay idle for longer than <tt> idleTimeout </tt>.
+   *
+   * @param <T> the type parameter
+   * @param minIdle the number of objects created up front and kept idle.
+   * @param maxSize the maximum number of objects in the pool.
+   * @param idleTimeout the idle time in milliseconds after which an object can be invalidated.
+   * @param factory the factory to create new objects.
+   * @param validator the validator to validate the re-usability of returned objects.
+   * @return an elastic blocking object pool bounded by <tt> maxSize </tt>
+   */
+  public static <T> BlockingPool<T> newElasticBlockingPool(int minIdle, int maxSize,
+      long idleTimeout, ObjectFactory<T> factory, Validator<T> validator) {
+    return new ElasticBlockingPool<T>(minIdle, maxSize, idleTimeout, validator, factory);
+  }
+
+  /**
+   * Creates a and returns a new object pool, that is an implementation of the {@link BlockingPool},
+   * whose size is limited by the <tt> size </tt> parameter. Released objects are handed directly to
+   * the longest waiting thread without going through an executor. The pool also implements
+   * {@link AsyncPool}, so objects can be requested without blocking the calling thread.
+   *
+   * @param <T> the type parameter
+   * @param size the number of objects in the pool.
+   * @param factory the factory to create new objects.
+   * @param validator the validator to validate the re-usability of returned objects.
+   * @return a lock-free blocking object pool bounded by <tt> size </tt>
+   */
+  public static <T> AsyncPool<T> newLockFreeBlockingPool(int size, ObjectFactory<T> factory,
+      Validator<T> validator) {
+    return new LockFreeBlockingPool<T>(size, validator, factory);
+  }
+
+  /**
+   * Creates a new lock-free {@link BlockingPool} and starts filling it with <tt> size </tt> objects
+   * created by up to <tt> parallelism </tt> threads. The pool can be used right away; the returned
+   * {@link PoolWarmUp} tells when it is full and which creations failed.
+   *
+   * @param <T> the type parameter
+   * @param size the number of objects in the pool.
+   * @param parallelism the maximum number of objects created at the same time.
+   * @param factory the thread-safe factory to create new objects.
+   * @param validator the validator to validate the re-usability of returned objects.
+   * @return the warm-up of a blocking object pool bounded by <tt> size </tt>
+   */
+  public static <T> PoolWarmUp<T> newWarmedUpBlockingPool(int size, int parallelism,
+      ObjectFactory<T> factory, Validator<T> validator) {
+    return new PoolWarmUp<T>(new LockFreeBlockingPool<T>(0, validator, factory), size,
+        parallelism, factory);
+  }
+
+  /**
+   * Creates a and returns a new object pool, that is an implementation of the
+   * {@link PrioritizedPool}, whose size is limited by the <tt> size </tt> parameter. Waiting
+   * threads are served by priority, each priority level being worth <tt> agingInterval </tt>
+   * milliseconds of waiting so that low priority requests are not starved.
+   *
+   * @param <T> the type parameter
+   * @param size the number of objects in the pool.
+   * @param agingInterval the waiting time in milliseconds that is worth one priority level.
+   * @param factory the factory to create new objects.
+   * @param validator the validator to validate the re-usability of returned objects.
+   * @return a prioritized blocking object pool bounded by <tt> size </tt>
+   */
+  public static <T> PrioritizedPool<T> newPriorityBlockingPool(int size, long agingInterval,
+      ObjectFactory<T> factory, Validator<T> validator) {
+    return new PriorityBlockingPool<T>(size, agingInterval, validator, factory);
+  }
+
+  /**
+   * Creates and returns a new, empty {@link KeyedPool}, in which at most <tt> globalCapacity </tt>
+   * objects can be in use at the same time across all keys. Keys are registered with
+   * {@link KeyedPool#addKey}.
+   *
+   * @param <K> the key type parameter
+   * @param <T> the type parameter
+   * @param globalCapacity the maximum number of objects in use across all keys.
+   * @param validator the validator to validate the re-usability of returned objects.
+   * @return a keyed object pool bounded by <tt> globalCapacity </tt>
+   */
+  public static <K, T> KeyedPool<K, T> newKeyedPool(int globalCapacity, Validator<T> validator) {
+    return new KeyedPool<K, T>(globalCapacity, validator);
+  }
+
   /**
    * Creates a and returns a new object pool, that is an implementation of the {@link Pool} whose
    * size is limited by the <tt> size </tt> parameter.
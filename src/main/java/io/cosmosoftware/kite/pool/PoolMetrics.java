@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.pool;
+
+import io.cosmosoftware.kite.interfaces.JsonBuilder;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Runtime counters of a pool: how long the callers wait for an object, how many objects are in use
+ * or idle, how many requests timed out and how many returned objects failed validation.
+ * <p>
+ * The acquire latencies are kept in a histogram of power-of-two buckets of nanoseconds, so that
+ * recording a value is a single atomic increment and the memory used does not depend on the
+ * number of requests.
+ */
+public final class PoolMetrics implements JsonBuilder {
+
+  private static final int BUCKETS = 64;
+
+  private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder acquireCount = new LongAdder();
+  private final LongAdder totalLatency = new LongAdder();
+  private final LongAdder releaseCount = new LongAdder();
+  private final LongAdder timeoutCount = new LongAdder();
+  private final LongAdder validationFailureCount = new LongAdder();
+  private final AtomicInteger inUse = new AtomicInteger();
+  private final AtomicInteger maxInUse = new AtomicInteger();
+  private final IntSupplier idleCount;
+
+  /**
+   * Instantiates a new Pool metrics.
+   *
+   * @param idleCount supplies the number of idle objects in the pool
+   */
+  PoolMetrics(IntSupplier idleCount) {
+    this.idleCount = idleCount;
+  }
+
+  private static int bucketOf(long nanos) {
+    return nanos <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(nanos);
+  }
+
+  /**
+   * Records that an object was handed out after the caller waited for the given time.
+   *
+   * @param waitNanos the wait time in nanoseconds
+   */
+  void recordAcquire(long waitNanos) {
+    acquireCount.increment();
+    totalLatency.add(waitNanos);
+    latencyBuckets.incrementAndGet(Math.min(bucketOf(waitNanos), BUCKETS - 1));
+    int current = inUse.incrementAndGet();
+    maxInUse.accumulateAndGet(current, Math::max);
+  }
+
+  /**
+   * Records that an object was given back to the pool, valid or not. The in use count does not go
+   * below zero, should an object be released twice or without having been handed out.
+   */
+  void recordRelease() {
+    releaseCount.increment();
+    inUse.updateAndGet(current -> current > 0 ? current - 1 : 0);
+  }
+
+  /**
+   * Records a request that gave up waiting for an object.
+   */
+  void recordTimeout() {
+    timeoutCount.increment();
+  }
+
+  /**
+   * Records a returned object that failed validation.
+   */
+  void recordValidationFailure() {
+    validationFailureCount.increment();
+  }
+
+  /**
+   * Gets the number of objects handed out.
+   *
+   * @return the acquire count
+   */
+  public long getAcquireCount() {
+    return acquireCount.sum();
+  }
+
+  /**
+   * Gets the acquire latency histogram, as the number of acquisitions per bucket keyed by the
+   * upper bound of the bucket in microseconds. Empty buckets are omitted.
+   *
+   * @return the histogram
+   */
+  public Map<Double, Long> getAcquireLatencyHistogram() {
+    Map<Double, Long> histogram = new LinkedHashMap<>();
+    for (int i = 0; i < BUCKETS; i++) {
+      long count = latencyBuckets.get(i);
+      if (count > 0) {
+        histogram.put(upperBoundNanos(i) / 1000, count);
+      }
+    }
+    return histogram;
+  }
+
+  /**
+   * Gets an estimate of the given acquire latency percentile, as the upper bound of the histogram
+   * bucket that contains it.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @param unit the unit of the returned value
+   * @return the latency, or 0 if nothing was acquired yet
+   */
+  public double getAcquireLatencyPercentile(double percentile, TimeUnit unit) {
+    long total = 0;
+    long[] counts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = latencyBuckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max((long) Math.ceil(total * percentile / 100), 1L);
+    long seen = 0;
+    int bucket = 0;
+    while (bucket < BUCKETS - 1 && (seen += counts[bucket]) < rank) {
+      bucket++;
+    }
+    return upperBoundNanos(bucket) / unit.toNanos(1);
+  }
+
+  /**
+   * Gets the mean acquire latency.
+   *
+   * @param unit the unit of the returned value
+   * @return the mean latency, or 0 if nothing was acquired yet
+   */
+  public double getAcquireLatencyMean(TimeUnit unit) {
+    long count = acquireCount.sum();
+    return count == 0 ? 0 : (double) totalLatency.sum() / count / unit.toNanos(1);
+  }
+
+  /**
+   * Gets the number of idle objects.
+   *
+   * @return the idle count
+   */
+  public int getIdleCount() {
+    return idleCount.getAsInt();
+  }
+
+  /**
+   * Gets the number of objects currently handed out.
+   *
+   * @return the in use count
+   */
+  public int getInUseCount() {
+    return inUse.get();
+  }
+
+  /**
+   * Gets the highest number of objects handed out at the same time.
+   *
+   * @return the max in use count
+   */
+  public int getMaxInUseCount() {
+    return maxInUse.get();
+  }
+
+  /**
+   * Gets the number of objects given back to the pool.
+   *
+   * @return the release count
+   */
+  public long getReleaseCount() {
+    return releaseCount.sum();
+  }
+
+  /**
+   * Gets the number of requests that gave up waiting for an object.
+   *
+   * @return the timeout count
+   */
+  public long getTimeoutCount() {
+    return timeoutCount.sum();
+  }
+
+  /**
+   * Gets the number of returned objects that failed validation.
+   *
+   * @return the validation failure count
+   */
+  public long getValidationFailureCount() {
+    return validationFailureCount.sum();
+  }
+
+  private static double upperBoundNanos(int bucket) {
+    return Math.pow(2, bucket);
+  }
+
+  @Override
+  public JsonObjectBuilder buildJsonObjectBuilder() {
+    JsonArrayBuilder histogram = Json.createArrayBuilder();
+    for (Map.Entry<Double, Long> bucket : getAcquireLatencyHistogram().entrySet()) {
+      histogram.add(Json.createObjectBuilder()
+          .add("upperBoundMicros", bucket.getKey())
+          .add("count", bucket.getValue()));
+    }
+    return Json.createObjectBuilder()
+        .add("acquireCount", getAcquireCount())
+        .add("releaseCount", getReleaseCount())
+        .add("timeoutCount", getTimeoutCount())
+        .add("validationFailureCount", getValidationFailureCount())
+        .add("inUseCount", getInUseCount())
+        .add("maxInUseCount", getMaxInUseCount())
+        .add("idleCount", getIdleCount())
+        .add("acquireLatencyMeanMs", getAcquireLatencyMean(TimeUnit.MILLISECONDS))
+        .add("acquireLatencyP50Ms", getAcquireLatencyPercentile(50, TimeUnit.MILLISECONDS))
+        .add("acquireLatencyP95Ms", getAcquireLatencyPercentile(95, TimeUnit.MILLISECONDS))
+        .add("acquireLatencyP99Ms", getAcquireLatencyPercentile(99, TimeUnit.MILLISECONDS))
+        .add("acquireLatencyHistogram", histogram);
+  }
+}
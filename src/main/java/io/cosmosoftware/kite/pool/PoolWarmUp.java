@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills a pool with objects created concurrently by a bounded number of threads.
+ * <p>
+ * The pool can be used while it is being filled: every object is released into it as soon as it
+ * has been created. A failed creation is recorded and does not prevent the other objects from
+ * being created. The {@link ObjectFactory} must therefore be safe to call from several threads.
+ *
+ * @param <T> the type parameter
+ */
+public final class PoolWarmUp<T> {
+
+  private final AtomicInteger created = new AtomicInteger();
+  private final Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+  private final CompletableFuture<BlockingPool<T>> future = new CompletableFuture<>();
+  private final AtomicInteger pending;
+  private final LockFreeBlockingPool<T> pool;
+  private final int size;
+
+  /**
+   * Instantiates a new Pool warm up and starts creating the objects.
+   *
+   * @param pool the empty pool to fill
+   * @param size the target number of objects
+   * @param parallelism the maximum number of objects created at the same time
+   * @param objectFactory the object factory
+   */
+  PoolWarmUp(LockFreeBlockingPool<T> pool, int size, int parallelism, ObjectFactory<T> objectFactory) {
+    this.pool = pool;
+    this.size = size;
+    this.pending = new AtomicInteger(size);
+
+    if (size <= 0) {
+      future.complete(pool);
+      return;
+    }
+
+    int threads = Math.max(1, Math.min(parallelism, size));
+    ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "PoolWarmUp");
+      thread.setDaemon(true);
+      return thread;
+    });
+    for (int i = 0; i < size; i++) {
+      executor.execute(() -> create(objectFactory));
+    }
+    executor.shutdown();
+  }
+
+  private void create(ObjectFactory<T> objectFactory) {
+    try {
+      T t = objectFactory.createNew();
+      created.incrementAndGet();
+      // not a release of an object handed out by the pool, so it is not counted in its metrics
+      pool.returnToPool(t);
+    } catch (Exception e) {
+      failures.add(e);
+    } finally {
+      if (pending.decrementAndGet() == 0) {
+        complete();
+      }
+    }
+  }
+
+  private void complete() {
+    if (failures.isEmpty()) {
+      future.complete(pool);
+    } else {
+      IllegalStateException e = new IllegalStateException(
+          failures.size() + " of " + size + " pooled objects could not be created",
+          failures.peek());
+      for (Exception failure : failures) {
+        if (failure != e.getCause()) {
+          e.addSuppressed(failure);
+        }
+      }
+      future.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Gets the number of objects created so far.
+   *
+   * @return the created count
+   */
+  public int getCreatedCount() {
+    return created.get();
+  }
+
+  /**
+   * Gets the exceptions thrown by the object factory so far.
+   *
+   * @return the failures
+   */
+  public List<Exception> getFailures() {
+    return new ArrayList<>(failures);
+  }
+
+  /**
+   * Gets the pool being filled. It can be used before the warm-up is complete.
+   *
+   * @return the pool
+   */
+  public BlockingPool<T> getPool() {
+    return pool;
+  }
+
+  /**
+   * Returns a future that completes with the pool once it holds its target number of objects. If
+   * some objects could not be created, the future completes exceptionally once every creation has
+   * been attempted, with the factory exceptions attached; the pool remains usable with the objects
+   * that were created.
+   *
+   * @return the future
+   */
+  public CompletableFuture<BlockingPool<T>> ready() {
+    return future;
+  }
+}
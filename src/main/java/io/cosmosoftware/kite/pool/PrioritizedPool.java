@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.pool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a blocking pool in which the waiting threads can be served by priority rather than
+ * strictly in arrival order.
+ *
+ * @param <T> the type parameter
+ */
+public interface PrioritizedPool<T> extends BlockingPool<T> {
+
+  /**
+   * The priority used by the calls that do not specify one.
+   */
+  int NORMAL_PRIORITY = 0;
+
+  /**
+   * Returns an instance of type T from the pool, waiting up to the specified wait time if necessary
+   * for an object to become available.
+   * <p>
+   * When several threads are waiting, the released objects go to the highest priority first.
+   * Implementations must make sure that low priority requests are not starved, for instance by
+   * raising the priority of a request the longer it waits.
+   *
+   * @param priority the priority of the request, higher values are served first
+   * @param time amount of time to wait before giving up, in units of <tt>unit</tt>
+   * @param unit a <tt>TimeUnit</tt> determining how to interpret the <tt>time</tt> parameter
+   * @return T an instance of the Object of type T from the pool.
+   * @throws InterruptedException if interrupted while waiting
+   * @throws TimeElapsedException the time elapsed exception
+   */
+  T get(int priority, long time, TimeUnit unit) throws InterruptedException, TimeElapsedException;
+}
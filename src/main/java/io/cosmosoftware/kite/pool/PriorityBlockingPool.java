@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.pool;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded blocking pool that serves the waiting threads by priority.
+ * <p>
+ * To protect low priority requests from starvation, each priority level is worth a fixed amount
+ * of waiting time, the aging interval: a request of priority <tt>p</tt> is served as if it had
+ * arrived <tt>p</tt> aging intervals earlier than it did. A request therefore never waits behind a
+ * request of higher priority that arrived more than the difference in priority times the aging
+ * interval after it.
+ *
+ * @param <T> the type parameter
+ */
+public final class PriorityBlockingPool<T> extends AbstractPool<T> implements PrioritizedPool<T> {
+
+  final private ObjectFactory<T> objectFactory;
+  final private int size;
+  final private long agingInterval;
+  final private Validator<T> validator;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Deque<T> objects = new ArrayDeque<>();
+  private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+      Comparator.comparingLong((Waiter waiter) -> waiter.rank)
+          .thenComparingLong(waiter -> waiter.sequence));
+  private long sequence;
+  private volatile boolean shutdownCalled;
+
+  /**
+   * Instantiates a new Priority blocking pool.
+   *
+   * @param size the size
+   * @param agingInterval the waiting time in milliseconds that is worth one priority level
+   * @param validator the validator
+   * @param objectFactory the object factory
+   */
+  public PriorityBlockingPool(int size, long agingInterval, Validator<T> validator,
+      ObjectFactory<T> objectFactory) {
+    super();
+
+    this.objectFactory = objectFactory;
+    this.size = size;
+    this.agingInterval = TimeUnit.MILLISECONDS.toNanos(agingInterval);
+    this.validator = validator;
+
+    initializeObjects();
+
+    shutdownCalled = false;
+  }
+
+  private void checkShutdown() {
+    if (shutdownCalled) {
+      throw new IllegalStateException("Object pool is already shutdown");
+    }
+  }
+
+  public T get() {
+    try {
+      return get(NORMAL_PRIORITY, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (TimeElapsedException e) {
+      return null;
+    }
+  }
+
+  public T get(long timeOut, TimeUnit unit) throws TimeElapsedException {
+    try {
+      return get(NORMAL_PRIORITY, timeOut, unit);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new TimeElapsedException(ie);
+    }
+  }
+
+  @Override
+  public T get(int priority, long time, TimeUnit unit)
+      throws InterruptedException, TimeElapsedException {
+    long start = System.nanoTime();
+    T t;
+    lock.lock();
+    try {
+      checkShutdown();
+      t = waiters.isEmpty() ? objects.poll() : null;
+      if (t == null) {
+        Waiter waiter = new Waiter(start - priority * agingInterval, sequence++);
+        waiters.offer(waiter);
+        long nanos = unit.toNanos(time);
+        try {
+          while (waiter.object == null) {
+            if (shutdownCalled) {
+              waiters.remove(waiter);
+              checkShutdown();
+            }
+            if (nanos <= 0L) {
+              waiters.remove(waiter);
+              metrics.recordTimeout();
+              throw new TimeElapsedException();
+            }
+            nanos = waiter.condition.awaitNanos(nanos);
+          }
+        } catch (InterruptedException e) {
+          if (waiter.object != null) {
+            // an object was handed over at the same time, give it to the next waiter
+            handOff(waiter.object);
+          } else {
+            waiters.remove(waiter);
+          }
+          throw e;
+        }
+        t = waiter.object;
+      }
+    } finally {
+      lock.unlock();
+    }
+    metrics.recordAcquire(System.nanoTime() - start);
+    return t;
+  }
+
+  @Override
+  public int getIdleCount() {
+    lock.lock();
+    try {
+      return objects.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gives the object to the first waiter in priority order, or puts it back with the idle objects.
+   * Must be called with the lock held.
+   */
+  private void handOff(T t) {
+    Waiter waiter = waiters.poll();
+    if (waiter != null) {
+      waiter.object = t;
+      waiter.condition.signal();
+    } else {
+      objects.offer(t);
+    }
+  }
+
+  @Override
+  protected void handleInvalidReturn(T t) {
+    validator.invalidate(t);
+  }
+
+  private void initializeObjects() {
+    for (int i = 0; i < size; i++) {
+      objects.add(objectFactory.createNew());
+    }
+  }
+
+  @Override
+  protected boolean isValid(T t) {
+    return validator.isValid(t);
+  }
+
+  @Override
+  protected void returnToPool(T t) {
+    lock.lock();
+    try {
+      if (!shutdownCalled) {
+        handOff(t);
+        return;
+      }
+    } finally {
+      lock.unlock();
+    }
+    validator.invalidate(t);
+  }
+
+  public void shutdown() {
+    Deque<T> idle;
+    lock.lock();
+    try {
+      shutdownCalled = true;
+      for (Waiter waiter : waiters) {
+        waiter.condition.signal();
+      }
+      idle = new ArrayDeque<>(objects);
+      objects.clear();
+    } finally {
+      lock.unlock();
+    }
+    for (T t : idle) {
+      validator.invalidate(t);
+    }
+  }
+
+  private final class Waiter {
+
+    private final Condition condition = lock.newCondition();
+    private final long rank;
+    private final long sequence;
+    private T object;
+
+    /**
+     * Instantiates a new Waiter.
+     *
+     * @param rank the arrival time, moved earlier by the priority of the request
+     * @param sequence the arrival order, to break ties
+     */
+    private Waiter(long rank, long sequence) {
+      this.rank = rank;
+      this.sequence = sequence;
+    }
+  }
+}
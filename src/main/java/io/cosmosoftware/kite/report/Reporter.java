@@ -13,6 +13,7 @@ import static io.cosmosoftware.kite.util.TestUtils.readJsonFile;
 import static io.cosmosoftware.kite.util.TestUtils.verifyPathFormat;
 
 import io.cosmosoftware.kite.exception.KiteTestException;
+import io.cosmosoftware.kite.interfaces.JsonBuilder;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -21,6 +22,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import javax.json.Json;
@@ -53,6 +55,7 @@ public class Reporter {
   private List<AllureTestReport> tests = Collections.synchronizedList(new ArrayList<>());
   private List<Category> categories = new ArrayList<>();
   private List<List<Integer>> failedClientMatrixList = new ArrayList<>();
+  private final Map<String, JsonBuilder> reportFiles = new LinkedHashMap<>();
   /**
    * Instantiates a new Reporter.
    */
@@ -87,6 +90,18 @@ public class Reporter {
     this.containers.add(container);
   }
 
+  /**
+   * Adds a JSON file written with the report files, such as the metrics of a resource pool used by
+   * the test. The content is built each time the report files are generated, and the file is not
+   * written if the content is empty.
+   *
+   * @param fileName the file name, in the report folder
+   * @param builder the builder of the content
+   */
+  public synchronized void addReportFile(String fileName, JsonBuilder builder) {
+    this.reportFiles.put(fileName, builder);
+  }
+
   /**
    * Add test.
    *
@@ -125,6 +140,13 @@ public class Reporter {
     }
     generateFile(this.reportPath + "environment.properties", this.environment.toString());
     generateFile(this.reportPath + "categories.json", generateCategories());
+    for (Map.Entry<String, JsonBuilder> reportFile : reportFiles.entrySet()) {
+      JsonObject content = reportFile.getValue().buildJsonObjectBuilder().build();
+      if (!content.isEmpty()) {
+        logger.info(reportFile.getKey() + ": " + content);
+        generateFile(this.reportPath + reportFile.getKey(), jsonToString(content));
+      }
+    }
     if (generateRetryConfigFile() != null) {
       logger.warn("Done! Some test cases might need to be rerun!");
       generateFile(this.retryPath + "retry-" + timestamp() + ".json",
@@ -7,14 +7,25 @@ import io.cosmosoftware.kite.report.KiteLogger;
 import io.cosmosoftware.kite.util.ReportUtils;
 
 import javax.json.JsonObject;
+import javax.json.JsonValue;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * RTCPeerConnectionStats, with attributes dataChannelsOpened, dataChannelsClosed
+ * <p>
+ * The samples are indexed as they are appended: the first appearance of each stat and the audio
+ * and video streams of the last sample are kept, so that the summaries do not rescan the samples.
+ * Each sample is also normalized once, by {@link StatsNormalizer}, into the distributions returned
+ * by {@link #summarize()}. Any other modification of the list drops the index, which is then
+ * rebuilt on the next summary.
  */
-public abstract class BasePCStatsArray extends ArrayList<JsonObject> {
+public abstract class BasePCStatsArray extends ArrayList<JsonObject> implements PCStats {
 
   /**
    * The constant AUDIO.
@@ -30,6 +41,58 @@ public abstract class BasePCStatsArray extends ArrayList<JsonObject> {
   protected static final DecimalFormat df = new DecimalFormat("#0.0000");
   private static final KiteLogger logger = KiteLogger.getLogger(BasePCStatsArray.class.getName());
 
+  private final Map<String, JsonObject> firstAppearances = new HashMap<>();
+  private final Map<String, Map<String, JsonObject>> firstAVAppearances = new HashMap<>();
+  private List<AVStream> lastAVStreams = new ArrayList<>();
+  private final Map<String, StatsSummarizer> summarizers = new HashMap<>();
+  private int indexedModCount = 0;
+
+  @Override
+  public boolean add(JsonObject sample) {
+    boolean indexed = indexedModCount == modCount;
+    super.add(sample);
+    if (indexed) {
+      index(sample);
+      indexedModCount = modCount;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends JsonObject> samples) {
+    boolean indexed = indexedModCount == modCount;
+    boolean changed = super.addAll(samples);
+    if (indexed) {
+      for (JsonObject sample : samples) {
+        index(sample);
+      }
+      indexedModCount = modCount;
+    }
+    return changed;
+  }
+
+  /**
+   * Classifies a stat object as a sent or received audio or video stream.
+   *
+   * @param itemKey the stat id
+   * @param statObject the stat object
+   * @return the stream, or null if the stat object is not an audio or video stream
+   */
+  private AVStream classify(String itemKey, JsonObject statObject) {
+    try {
+      String mediaType = statObject.getString("mediaType");
+      if (isSendAV(statObject, mediaType)) {
+        return new AVStream(itemKey, statObject, mediaType, true);
+      }
+      if (isRecvAV(statObject, mediaType)) {
+        return new AVStream(itemKey, statObject, mediaType, false);
+      }
+    } catch (NullPointerException | ClassCastException e) {
+      // not an RTP stream stat
+    }
+    return null;
+  }
+
   /**
    * Compute avg bitrate long.
    *
@@ -59,6 +122,19 @@ public abstract class BasePCStatsArray extends ArrayList<JsonObject> {
     return bitrate;
   }
 
+  private void ensureIndexed() {
+    if (indexedModCount != modCount) {
+      firstAppearances.clear();
+      firstAVAppearances.clear();
+      lastAVStreams = new ArrayList<>();
+      summarizers.clear();
+      for (JsonObject sample : this) {
+        index(sample);
+      }
+      indexedModCount = modCount;
+    }
+  }
+
   /**
    * Gets av avg bitrate.
    *
@@ -89,6 +165,50 @@ public abstract class BasePCStatsArray extends ArrayList<JsonObject> {
    */
   public abstract Map<String, String> getFrameRate();
 
+  /**
+   * Gets the first appearance of a stat in the samples.
+   *
+   * @param itemKey the stat id
+   * @return the stat object, or null
+   */
+  JsonObject getFirstAppearanceOf(String itemKey) {
+    ensureIndexed();
+    return firstAppearances.get(itemKey);
+  }
+
+  /**
+   * Gets the first appearance of a stat in the samples as an audio or video stream.
+   *
+   * @param itemKey the stat id
+   * @param mediaType the media type
+   * @return the stat object, or null
+   */
+  JsonObject getFirstAppearanceOf(String itemKey, String mediaType) {
+    ensureIndexed();
+    Map<String, JsonObject> appearances = firstAVAppearances.get(mediaType);
+    return appearances == null ? null : appearances.get(itemKey);
+  }
+
+  /**
+   * Gets the audio or video streams of the last sample.
+   *
+   * @param mediaType the media type
+   * @return the streams, empty if there is no more than one sample
+   */
+  List<AVStream> getLastAVStreams(String mediaType) {
+    if (getLastObject() == null) {
+      return Collections.emptyList();
+    }
+    ensureIndexed();
+    List<AVStream> streams = new ArrayList<>();
+    for (AVStream stream : lastAVStreams) {
+      if (stream.mediaType.equals(mediaType)) {
+        streams.add(stream);
+      }
+    }
+    return streams;
+  }
+
   /**
    * Gets last object.
    *
@@ -113,6 +233,36 @@ public abstract class BasePCStatsArray extends ArrayList<JsonObject> {
    */
   public abstract Map<String, String> getTotalAVBytes(String mediaType);
 
+  /**
+   * Gets the objects of a sample that hold the stats, keyed by stat id, one per peer connection.
+   *
+   * @param sample the sample
+   * @return the stats objects, by key of their peer connection in the sample
+   */
+  protected abstract Map<String, JsonObject> getStatsObjects(JsonObject sample);
+
+  private void index(JsonObject sample) {
+    lastAVStreams = new ArrayList<>();
+    for (Map.Entry<String, JsonObject> pcStats : getStatsObjects(sample).entrySet()) {
+      JsonObject statsObject = pcStats.getValue();
+      summarizers.computeIfAbsent(pcStats.getKey(), k -> new StatsSummarizer()).add(statsObject);
+      for (Map.Entry<String, JsonValue> entry : statsObject.entrySet()) {
+        if (!(entry.getValue() instanceof JsonObject)) {
+          continue;
+        }
+        String itemKey = entry.getKey();
+        JsonObject statObject = (JsonObject) entry.getValue();
+        firstAppearances.putIfAbsent(itemKey, statObject);
+        AVStream stream = classify(itemKey, statObject);
+        if (stream != null) {
+          firstAVAppearances.computeIfAbsent(stream.mediaType, k -> new HashMap<>())
+              .putIfAbsent(itemKey, statObject);
+          lastAVStreams.add(stream);
+        }
+      }
+    }
+  }
+
   /**
    * Is av boolean.
    *
@@ -153,4 +303,43 @@ public abstract class BasePCStatsArray extends ArrayList<JsonObject> {
         && !statObject.getString("googTrackId").contains("fake-unified-plan")
         && !statObject.getString("googCodecName").equals(""));
   }
+
+  @Override
+  public JsonObject set(int index, JsonObject sample) {
+    indexedModCount = -1;
+    return super.set(index, sample);
+  }
+
+  /**
+   * Summarizes the RTT, jitter, packet loss and frame rate of all the samples as distributions,
+   * from the samples normalized as they were appended.
+   *
+   * @return a new summarizer, which can be merged with the ones of other clients
+   */
+  public StatsSummarizer summarize() {
+    ensureIndexed();
+    StatsSummarizer summarizer = new StatsSummarizer();
+    for (StatsSummarizer pcSummarizer : summarizers.values()) {
+      summarizer.merge(pcSummarizer);
+    }
+    return summarizer;
+  }
+
+  /**
+   * A sent or received audio or video stream of a sample.
+   */
+  static final class AVStream {
+
+    final String itemKey;
+    final JsonObject statObject;
+    final String mediaType;
+    final boolean sent;
+
+    private AVStream(String itemKey, JsonObject statObject, String mediaType, boolean sent) {
+      this.itemKey = itemKey;
+      this.statObject = statObject;
+      this.mediaType = mediaType;
+      this.sent = sent;
+    }
+  }
 }
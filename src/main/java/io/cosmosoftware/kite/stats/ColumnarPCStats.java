@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A columnar store of the stats collected over time for a single peer connection.
+ * <p>
+ * Unlike {@link SinglePCStatsArray}, which keeps every sample as a JSON object of strings, the
+ * stat ids and field names are interned once and the numeric values are kept in primitive columns,
+ * one per stat id and field. Only the latest raw value of each field is kept as a string. The
+ * summaries are the same as the ones of {@link SinglePCStatsArray}, computed from the stats present
+ * in the last sample.
+ */
+public class ColumnarPCStats implements PCStats {
+
+  private static final StatsDictionary FIELDS = StatsDictionary.FIELDS;
+  private static final int TIMESTAMP = FIELDS.intern("timestamp");
+  private static final int BYTES_SENT = FIELDS.intern("bytesSent");
+  private static final int BYTES_RECEIVED = FIELDS.intern("bytesReceived");
+  private static final int PACKETS_LOST = FIELDS.intern("packetsLost");
+  private static final int PACKETS_SENT = FIELDS.intern("packetsSent");
+  private static final int PACKETS_RECEIVED = FIELDS.intern("packetsReceived");
+  private static final int JITTER_RECEIVED = FIELDS.intern("googJitterReceived");
+  private static final int FRAME_RATE_RECEIVED = FIELDS.intern("googFrameRateReceived");
+  private static final int FRAME_RATE_SENT = FIELDS.intern("googFrameRateSent");
+  private static final int RTT = FIELDS.intern("googRtt");
+
+  private final StatsDictionary statIds = new StatsDictionary();
+  private final List<StatsSeries> series = new ArrayList<>();
+  private final List<StatsSeries> lastSeries = new ArrayList<>();
+  private int samples;
+
+  /**
+   * Adds a sample, either in the <tt>{"localStats": {...}}</tt> form of the samples of
+   * {@link SinglePCStatsArray} or as the stats themselves, keyed by stat id.
+   *
+   * @param sample the sample
+   */
+  public synchronized void add(JsonObject sample) {
+    JsonObject stats = sample.containsKey("localStats") ? sample.getJsonObject("localStats")
+        : sample;
+    int index = samples++;
+    lastSeries.clear();
+    for (Map.Entry<String, JsonValue> stat : stats.entrySet()) {
+      if (stat.getValue().getValueType() != JsonValue.ValueType.OBJECT) {
+        continue;
+      }
+      StatsSeries statSeries = beginRow(stat.getKey(), index);
+      for (Map.Entry<String, JsonValue> field : ((JsonObject) stat.getValue()).entrySet()) {
+        JsonValue value = field.getValue();
+        statSeries.put(FIELDS.intern(field.getKey()), value instanceof JsonString
+            ? ((JsonString) value).getString() : value.toString());
+      }
+      statSeries.endRow();
+    }
+  }
+
+  /**
+   * Adds a sample given as the values of the stats, keyed by stat id then field name.
+   *
+   * @param stats the stats
+   */
+  public synchronized void append(Map<String, ? extends Map<String, ?>> stats) {
+    int index = samples++;
+    lastSeries.clear();
+    for (Map.Entry<String, ? extends Map<String, ?>> stat : stats.entrySet()) {
+      StatsSeries statSeries = beginRow(stat.getKey(), index);
+      for (Map.Entry<String, ?> field : stat.getValue().entrySet()) {
+        if (field.getValue() != null) {
+          statSeries.put(FIELDS.intern(field.getKey()), field.getValue());
+        }
+      }
+      statSeries.endRow();
+    }
+  }
+
+  /**
+   * Adds a sample given as the array of stats returned by the web driver for getStats(), each
+   * stat being a map holding its id. The numeric values are stored as they are, without going
+   * through strings or JSON objects.
+   *
+   * @param statArray the list of stats
+   */
+  public synchronized void appendStatArray(List<?> statArray) {
+    int index = samples++;
+    lastSeries.clear();
+    for (Object item : statArray) {
+      if (!(item instanceof Map)) {
+        continue;
+      }
+      Map<?, ?> stat = (Map<?, ?>) item;
+      StatsSeries statSeries = beginRow(String.valueOf(stat.get("id")), index);
+      for (Map.Entry<?, ?> field : stat.entrySet()) {
+        if (field.getValue() != null) {
+          statSeries.put(FIELDS.intern(field.getKey().toString()), field.getValue());
+        }
+      }
+      statSeries.endRow();
+    }
+  }
+
+  private StatsSeries beginRow(String statId, int sample) {
+    int id = statIds.intern(statId);
+    if (id == series.size()) {
+      series.add(new StatsSeries(statId));
+    }
+    StatsSeries statSeries = series.get(id);
+    statSeries.beginRow(sample);
+    lastSeries.add(statSeries);
+    return statSeries;
+  }
+
+  private List<StatsSeries> getLastSeries() {
+    return samples > 1 ? lastSeries : new ArrayList<>();
+  }
+
+  @Override
+  public synchronized Map<String, String> getAVAvgBitrate(String mediaType) {
+    Map<String, String> videosAvgBitrateMap = new HashMap<>();
+    for (StatsSeries statSeries : getLastSeries()) {
+      boolean sentVideo = statSeries.isSendAV(mediaType);
+      if (sentVideo || statSeries.isRecvAV(mediaType)) {
+        int bytes = sentVideo ? BYTES_SENT : BYTES_RECEIVED;
+        int first = statSeries.getFirstAVRow();
+        int last = statSeries.getRows() - 1;
+        double startTS = statSeries.get(TIMESTAMP, first);
+        double endTS = statSeries.get(TIMESTAMP, last);
+        double startBytes = statSeries.get(bytes, first);
+        double endBytes = statSeries.get(bytes, last);
+        String value = "";
+        if (!Double.isNaN(startTS + endTS + startBytes + endBytes)) {
+          long duration = (long) endTS - (long) startTS;
+          if (duration > 0) {
+            value = "" + (((long) endBytes - (long) startBytes) * 8000) / duration;
+          }
+        }
+        videosAvgBitrateMap.put(statSeries.getId(), value);
+      }
+    }
+    return videosAvgBitrateMap;
+  }
+
+  @Override
+  public synchronized Map<String, String> getAVPacketLoss(String mediaType) {
+    DecimalFormat df = new DecimalFormat("#0.0000");
+    Map<String, String> packetLossMap = new HashMap<>();
+    for (StatsSeries statSeries : getLastSeries()) {
+      boolean sent = statSeries.isSendAV(mediaType);
+      if (sent || statSeries.isRecvAV(mediaType)) {
+        int last = statSeries.getRows() - 1;
+        double packetsLost = statSeries.get(PACKETS_LOST, last);
+        double packetsCount = statSeries.get(sent ? PACKETS_SENT : PACKETS_RECEIVED, last);
+        double loss = Double.isNaN(packetsLost + packetsCount) ? -1.0
+            : (100 * packetsLost) / (packetsCount + packetsLost);
+        packetLossMap.put(statSeries.getId(), df.format(loss));
+      }
+    }
+    return packetLossMap;
+  }
+
+  @Override
+  public synchronized Map<String, String> getAudiosJitter() {
+    Map<String, String> jitterMap = new HashMap<>();
+    for (StatsSeries statSeries : getLastSeries()) {
+      if (statSeries.isSendAV(AUDIO)) {
+        jitterMap.put(statSeries.getId(), "NA");
+      } else if (statSeries.isRecvAV(AUDIO)) {
+        String jitter = statSeries.getLastValue(JITTER_RECEIVED);
+        jitterMap.put(statSeries.getId(), jitter != null ? jitter : "-1");
+      }
+    }
+    return jitterMap;
+  }
+
+  @Override
+  public synchronized Map<String, String> getFrameRate() {
+    Map<String, String> resultMap = new HashMap<>();
+    for (StatsSeries statSeries : getLastSeries()) {
+      String frameRate = null;
+      if (statSeries.isSendAV(VIDEO)) {
+        frameRate = statSeries.getLastValue(FRAME_RATE_SENT);
+      } else if (statSeries.isRecvAV(VIDEO)) {
+        frameRate = statSeries.getLastValue(FRAME_RATE_RECEIVED);
+      } else {
+        continue;
+      }
+      resultMap.put(statSeries.getId(), frameRate != null ? frameRate : "-1");
+    }
+    return resultMap;
+  }
+
+  @Override
+  public synchronized String getSentVideoRtt() {
+    for (StatsSeries statSeries : getLastSeries()) {
+      if (statSeries.isSendAV(VIDEO)) {
+        String rtt = statSeries.getLastValue(RTT);
+        return rtt != null ? rtt : "";
+      }
+    }
+    return "";
+  }
+
+  @Override
+  public synchronized Map<String, String> getTotalAVBytes(String mediaType) {
+    Map<String, String> totalVideosBytesMap = new HashMap<>();
+    for (StatsSeries statSeries : getLastSeries()) {
+      String bytes = null;
+      if (statSeries.isSendAV(mediaType)) {
+        bytes = statSeries.getLastValue(BYTES_SENT);
+      } else if (statSeries.isRecvAV(mediaType)) {
+        bytes = statSeries.getLastValue(BYTES_RECEIVED);
+      }
+      if (bytes != null) {
+        totalVideosBytesMap.put(statSeries.getId(), bytes);
+      }
+    }
+    return totalVideosBytesMap;
+  }
+
+  /**
+   * Gets the values of a field of a stat over time, one per sample in which the stat appeared.
+   *
+   * @param statId the stat id
+   * @param field the field name
+   * @return the values, NaN where the field had no numeric value
+   */
+  public synchronized double[] getValues(String statId, String field) {
+    int id = statIds.idOf(statId);
+    if (id < 0) {
+      return new double[0];
+    }
+    StatsSeries statSeries = series.get(id);
+    int fieldId = FIELDS.idOf(field);
+    double[] values = new double[statSeries.getRows()];
+    for (int row = 0; row < values.length; row++) {
+      values[row] = statSeries.get(fieldId, row);
+    }
+    return values;
+  }
+
+  /**
+   * Gets the number of samples.
+   *
+   * @return the number of samples
+   */
+  public synchronized int size() {
+    return samples;
+  }
+}
@@ -6,12 +6,15 @@ package io.cosmosoftware.kite.stats;
 
 
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 
 import javax.json.Json;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,7 +22,7 @@ import java.util.Map;
  */
 public class GetStatsUtils {
 
-  private static final int INTERVAL = 500;
+  private static final long TIMEOUT = 10000;
 
   /**
    * Build a stats Json object from a stats array
@@ -34,10 +37,8 @@ public class GetStatsUtils {
         Map<Object, Object> statMap = (Map<Object, Object>) map;
         String id = (String) statMap.get("id");
         JsonObjectBuilder tmp = Json.createObjectBuilder();
-        if (!statMap.isEmpty()) {
-          for (Object item : statMap.keySet()) {
-            tmp.add(item.toString(), statMap.get(item).toString());
-          }
+        for (Map.Entry<Object, Object> item : statMap.entrySet()) {
+          tmp.add(item.getKey().toString(), String.valueOf(item.getValue()));
         }
         statObjectBuilder.add(id, tmp.build());
       }
@@ -45,43 +46,165 @@ public class GetStatsUtils {
     return statObjectBuilder.build();
   }
 
+  /**
+   * Adds a stats array to a columnar store, keeping the numeric values as numbers. Unlike
+   * {@link #buildStatArray(Object)}, no JSON object nor string is built for the values.
+   *
+   * @param statArray array of stats from js function
+   * @param stats the store the sample is added to
+   * @return the store
+   */
+  public static ColumnarPCStats buildStatArray(Object statArray, ColumnarPCStats stats) {
+    stats.appendStatArray((List<?>) statArray);
+    return stats;
+  }
+
+  /**
+   * Collects the stats in a single WebDriver round trip: the script resolves the getStats()
+   * promise in the browser and returns its result.
+   *
+   * @param statsType the stats type: "kite" for the values of pc.getStats(), "local" for the
+   *     legacy stats of pc, "remote" for the legacy stats of each pc of remotePc, "jitsi" for the
+   *     legacy stats of each Jitsi peer connection
+   * @param webDriver the web driver
+   * @param timeout the maximum time to wait for the stats, in ms. It must be shorter than the
+   *     script timeout of the web driver.
+   * @return the stats, an array of stats for "kite" and "local", an array of arrays of stats for
+   *     "remote" and "jitsi", or null for an unknown stats type
+   * @throws TimeoutException if the stats are not available within the timeout
+   * @throws WebDriverException if getStats() fails
+   */
+  public static Object collectStats(String statsType, WebDriver webDriver, long timeout) {
+    return collectStats(statsType, webDriver, timeout, "stats");
+  }
+
+  /**
+   * Collects the stats in a single WebDriver round trip, in delta encoding: the browser only sends
+   * the fields that changed since the previous call made with the same decoder, and the decoder
+   * reconstructs the full stats. The sample is only encoded if it is returned before the timeout,
+   * and the decoder is reset if the call fails, so that the next sample is sent in full.
+   *
+   * @param statsType the stats type, see {@link #collectStats(String, WebDriver, long)}
+   * @param webDriver the web driver
+   * @param timeout the maximum time to wait for the stats, in ms
+   * @param decoder the decoder, to be reused for the following calls on this web driver
+   * @return the stats, as collectStats(statsType, webDriver, timeout) would return them
+   * @throws TimeoutException if the stats are not available within the timeout
+   * @throws WebDriverException if getStats() fails
+   */
+  public static Object collectStats(String statsType, WebDriver webDriver, long timeout,
+      StatsDeltaDecoder decoder) {
+    boolean perPC = statsType.equals("remote") || statsType.equals("jitsi");
+    Object stats;
+    try {
+      stats = collectStats(statsType, webDriver, timeout, perPC
+          ? decoder.getEncodePerPCExpression("stats") : decoder.getEncodeExpression(0, "stats"));
+    } catch (RuntimeException e) {
+      // the browser may have encoded a sample that never arrived
+      decoder.reset();
+      throw e;
+    }
+    if (stats == null) {
+      return null;
+    }
+    if (perPC) {
+      List<?> samples = (List<?>) stats;
+      List<Object> decoded = new ArrayList<>();
+      for (int pc = 0; pc < samples.size(); pc++) {
+        decoded.add(decoder.decode(pc, samples.get(pc)));
+      }
+      return decoded;
+    }
+    return decoder.decode(0, stats);
+  }
+
+  private static Object collectStats(String statsType, WebDriver webDriver, long timeout,
+      String resultExpression) {
+    String promise = getStatsPromise(statsType);
+    if (promise == null) {
+      return null;
+    }
+    Object result = ((JavascriptExecutor) webDriver).executeAsyncScript(
+        "const callback = arguments[arguments.length - 1];"
+            + StatsDeltaDecoder.ENCODER_SCRIPT
+            + "const legacyItems = res => res.result().map(result => {"
+            + "  const item = {};"
+            + "  result.names().forEach(name => item[name] = result.stat(name));"
+            + "  item.id = result.id;"
+            + "  item.type = result.type;"
+            + "  item.timestamp = result.timestamp.getTime().toString();"
+            + "  return item;"
+            + "});"
+            + "const legacyStats = p =>"
+            + "  new Promise(resolve => p.getStats(res => resolve(legacyItems(res))));"
+            + "let settled = false;"
+            + "const settle = response => {"
+            + "  if (!settled) {"
+            + "    settled = true;"
+            + "    callback(response);"
+            + "  }"
+            + "};"
+            + "setTimeout(() => settle({timeout: true}), " + timeout + ");"
+            + "Promise.resolve().then(() => " + promise + ")"
+            + "  .then(stats => settled || settle({stats: " + resultExpression + "}))"
+            + "  .catch(error => settle({error: String(error)}));");
+    Map<?, ?> response = (Map<?, ?>) result;
+    if (response == null || Boolean.TRUE.equals(response.get("timeout"))) {
+      throw new TimeoutException("getStats() did not complete within " + timeout + "ms");
+    }
+    if (response.containsKey("error")) {
+      throw new WebDriverException("getStats() failed: " + response.get("error"));
+    }
+    return response.get("stats");
+  }
+
   /**
    * Gets stats once.
    *
    * @param statsType the stats type
    * @param webDriver the web driver
    * @return the stats once
-   * @throws InterruptedException the interrupted exception
+   * @throws InterruptedException never, kept for source compatibility
    */
   public static Object getStatsOnce(String statsType, WebDriver webDriver)
       throws InterruptedException {
-    ((JavascriptExecutor) webDriver).executeScript(stashStatsScript(statsType));
-    if (statsType.equals("kite")) {
-      Thread.sleep(INTERVAL);
-    }
-    return ((JavascriptExecutor) webDriver).executeScript(getStatsScript(statsType));
+    return collectStats(statsType, webDriver, TIMEOUT);
   }
 
   /**
-   * @return the JavaScript as string, depending on needed stats.
+   * Gets stats once, in delta encoding: the browser only sends the fields that changed since the
+   * previous call made with the same decoder, and the decoder reconstructs the full stats.
+   *
+   * @param statsType the stats type
+   * @param webDriver the web driver
+   * @param decoder the decoder, to be reused for the following calls on this web driver
+   * @return the stats once, as getStatsOnce(statsType, webDriver) would return them
+   * @throws InterruptedException never, kept for source compatibility
    */
-  private static final String getStatsScript(String statsType) {
-    String jsQuery = "";
+  public static Object getStatsOnce(String statsType, WebDriver webDriver,
+      StatsDeltaDecoder decoder) throws InterruptedException {
+    return collectStats(statsType, webDriver, TIMEOUT, decoder);
+  }
+
+  /**
+   * @return the JavaScript expression of the promise of the stats, depending on needed stats,
+   * which also stashes them in a global variable.
+   */
+  private static String getStatsPromise(String statsType) {
     switch (statsType) {
       case "kite":
-        jsQuery = "return window.KITEStats;";
-        break;
+        return "pc.getStats().then(data => window.KITEStats = [...data.values()])";
       case "local":
-        jsQuery = "return window.LocalStats;";
-        break;
+        return "legacyStats(pc).then(items => window.LocalStats = items)";
       case "remote":
-        jsQuery = "return window.RemoteStats;";
-        break;
+        return "Promise.all(Object.values(remotePc).map(legacyStats))"
+            + ".then(items => window.RemoteStats = items)";
       case "jitsi":
-        jsQuery = "return window.JitsiStats;";
-        break;
+        return "Promise.all(Array.from(APP.conference._room.rtc.peerConnections.values())"
+            + ".map(legacyStats)).then(items => window.JitsiStats = items)";
+      default:
+        return null;
     }
-    return jsQuery;
   }
 
   /**
@@ -133,102 +256,4 @@ public class GetStatsUtils {
         + "}\n"
         + "stashStats()\n";
   }
-
-  /**
-   * Calls getStats from the peer connection object and stash them in a global variable. JS function
-   * depends on the test type.
-   *
-   * @param statsType type of needed stats: - "kite" for data.values which should be filtered after
-   * - "local" for stats from the response of pc.getStats() - "remote" for stats of all remote pc -
-   * "jitsi" in the case of a Jitsi test (pc in Jitsi is not exposed as window.pc)
-   * @return the stashStatsScript as string.
-   */
-  private static final String stashStatsScript(String statsType) {
-    String jsQuery = "";
-    switch (statsType) {
-      case "kite":
-        jsQuery = "const getStatsValues = () =>"
-            + "  pc.getStats()"
-            + "    .then(data => {"
-            + "      return [...data.values()];"
-            + "    });"
-            + "const stashStats = async () => {"
-            + "  window.KITEStats = await getStatsValues();"
-            + "  return window.KITEStats;"
-            + "};"
-            + "stashStats();";
-        break;
-      case "local":
-        jsQuery = "const getLocalStatsValues = () =>"
-            + "  pc.getStats(function (res) {"
-            + "            var items = [];"
-            + "            res.result().forEach(function (result) {"
-            + "                var item = {};"
-            + "                result.names().forEach(function (name) {"
-            + "                    item[name] = result.stat(name);"
-            + "                });"
-            + "                item.id = result.id;"
-            + "                item.type = result.type;"
-            + "                item.timestamp = result.timestamp.getTime().toString();"
-            + "                items.push(item);"
-            + "            });"
-            + "            window.LocalStats = items;"
-            + "        });"
-            + "const stashLocalStats = async () => {"
-            + "  await getLocalStatsValues();"
-            + "  return window.LocalStats;"
-            + "};"
-            + "stashLocalStats();";
-        break;
-      case "remote":
-        jsQuery = "const getRemoteStatsValues = (i) =>"
-            + "  remotePc[i].getStats(function (res) {"
-            + "            var items = [];"
-            + "            res.result().forEach(function (result) {"
-            + "                var item = {};"
-            + "                result.names().forEach(function (name) {"
-            + "                    item[name] = result.stat(name);"
-            + "                });"
-            + "                item.id = result.id;"
-            + "                item.type = result.type;"
-            + "                item.timestamp = result.timestamp.getTime().toString();"
-            + "                items.push(item);"
-            + "            });"
-            + "            if (!window.RemoteStats) window.RemoteStats = [items]; "
-            + "            else window.RemoteStats.push(items);"
-            + "        });"
-            + "const stashRemoteStats = async () => {"
-            + "  window.RemoteStats = [];"
-            + "  for (i in remotePc) await getRemoteStatsValues(i);"
-            + "  return window.RemoteStats;"
-            + "};"
-            + "stashRemoteStats();";
-        break;
-      case "jitsi":
-        jsQuery = "const getJitsiStatsValues = (p) =>"
-            + "  p.getStats(function (res) {"
-            + "            var items = [];"
-            + "            res.result().forEach(function (result) {"
-            + "                var item = {};"
-            + "                result.names().forEach(function (name) {"
-            + "                    item[name] = result.stat(name);"
-            + "                });"
-            + "                item.id = result.id;"
-            + "                item.type = result.type;"
-            + "                item.timestamp = result.timestamp.getTime().toString();"
-            + "                items.push(item);"
-            + "            });"
-            + "            if (!window.JitsiStats) window.JitsiStats = [items]; "
-            + "            else window.JitsiStats.push(items);"
-            + "        });"
-            + "const stashJitsiStats = async () => {"
-            + "  window.JitsiStats = [];"
-            + "  APP.conference._room.rtc.peerConnections.forEach(await function(p){getJitsiStatsValues(p);});"
-            + "  return window.JitsiStats;"
-            + "};"
-            + "stashJitsiStats();";
-        break;
-    }
-    return jsQuery;
-  }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link StatsSink} writing the usual <tt>[[samples of pc 0], [samples of pc 1], ...]</tt>
+ * document, compact and optionally gzipped.
+ * <p>
+ * Since the samples of the peer connections arrive interleaved, they are appended to a part file
+ * per peer connection, and the part files are assembled into the document when the sink is
+ * closed.
+ */
+public class JsonStatsSink implements StatsSink {
+
+  private final File file;
+  private final boolean gzip;
+  private final List<File> partFiles = new ArrayList<>();
+  private final List<Writer> partWriters = new ArrayList<>();
+  private final List<Long> sampleCounts = new ArrayList<>();
+  private long sampleCount;
+  private boolean closed;
+
+  /**
+   * Instantiates a new JSON stats sink.
+   *
+   * @param file the file
+   * @param gzip whether to compress the file
+   */
+  public JsonStatsSink(File file, boolean gzip) {
+    this.file = file;
+    this.gzip = gzip;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      for (Writer writer : partWriters) {
+        writer.close();
+      }
+      try (OutputStream out = NDJsonStatsSink.openStream(file, gzip)) {
+        out.write('[');
+        for (int pc = 0; pc < partFiles.size(); pc++) {
+          out.write((pc > 0 ? ",\n[" : "[").getBytes(StandardCharsets.UTF_8));
+          Files.copy(partFiles.get(pc).toPath(), out);
+          out.write(']');
+        }
+        out.write(']');
+      }
+    } finally {
+      for (File partFile : partFiles) {
+        Files.deleteIfExists(partFile.toPath());
+      }
+    }
+  }
+
+  @Override
+  public File getFile() {
+    return file;
+  }
+
+  @Override
+  public synchronized long getSampleCount() {
+    return sampleCount;
+  }
+
+  @Override
+  public synchronized void write(int pc, Object sample) throws IOException {
+    if (closed) {
+      throw new IOException("Stats sink " + file + " is already closed");
+    }
+    while (partWriters.size() <= pc) {
+      File partFile = new File(file.getPath() + ".pc" + partWriters.size() + ".part");
+      partFiles.add(partFile);
+      partWriters.add(new BufferedWriter(
+          new OutputStreamWriter(new FileOutputStream(partFile), StandardCharsets.UTF_8)));
+      sampleCounts.add(0L);
+    }
+    Writer writer = partWriters.get(pc);
+    if (sampleCounts.get(pc) > 0) {
+      writer.write(",\n");
+    }
+    NDJsonStatsSink.writeJson(writer, sample);
+    sampleCounts.set(pc, sampleCounts.get(pc) + 1);
+    sampleCount++;
+  }
+}
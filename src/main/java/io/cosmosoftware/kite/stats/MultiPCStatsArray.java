@@ -7,7 +7,9 @@ import io.cosmosoftware.kite.report.KiteLogger;
 import io.cosmosoftware.kite.util.ReportUtils;
 
 import javax.json.JsonObject;
+import javax.json.JsonValue;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -22,88 +24,41 @@ public class MultiPCStatsArray extends BasePCStatsArray {
     if (this.size() <= 1) {
       return videosAvgBitrate;
     }
-    JsonObject lastStatObject = this.getLastObject();
-
-    if (lastStatObject != null) {
-      for (String statObjectKey : lastStatObject.keySet()) {
-        JsonObject statsObject = lastStatObject.getJsonObject(statObjectKey);
-        for (String itemKey : statsObject.keySet()) {
-          try {
-            JsonObject jsonObj = statsObject.getJsonObject(itemKey);
-            boolean sentVideo = isSendAV(jsonObj, mediaType);
-            if (isRecvAV(jsonObj, mediaType) || sentVideo) {
-              JsonObject lastItem = jsonObj;
-              JsonObject firstItem = this.getFirstAppearanceOf(itemKey);
-              long averageBitrate = computeAvgBitrate(firstItem, lastItem, sentVideo);
-              String value = (averageBitrate > -1) ? "" + averageBitrate : "";
-              videosAvgBitrate.put(itemKey, value);
-            }
-          } catch (Exception e) {
-            logger.error(ReportUtils.getStackTrace(e));
-          }
-        }
+    for (AVStream stream : getLastAVStreams(mediaType)) {
+      try {
+        JsonObject lastItem = stream.statObject;
+        JsonObject firstItem = this.getFirstAppearanceOf(stream.itemKey);
+        long averageBitrate = computeAvgBitrate(firstItem, lastItem, stream.sent);
+        String value = (averageBitrate > -1) ? "" + averageBitrate : "";
+        videosAvgBitrate.put(stream.itemKey, value);
+      } catch (Exception e) {
+        logger.error(ReportUtils.getStackTrace(e));
       }
     }
     return videosAvgBitrate;
   }
 
   public Map<String, String> getAVPacketLoss(String mediaType) {
-    JsonObject lastStatObject = this.getLastObject();
     Map<String, String> packetLoss = new HashMap<>();
-    if (lastStatObject != null) {
-      for (String statObjectKey : lastStatObject.keySet()) {
-        JsonObject statsObject = lastStatObject.getJsonObject(statObjectKey);
-        for (String itemKey : statsObject.keySet()) {
-          boolean sent = isSendAV(statsObject.getJsonObject(itemKey), mediaType);
-          if (statsObject.containsKey(itemKey)
-              && (isRecvAV(statsObject.getJsonObject(itemKey), mediaType) || sent)) {
-            long packetsLost =
-                Long.parseLong(statsObject.getJsonObject(itemKey).getString("packetsLost"));
-            long packetsCount =
-                Long.parseLong(
-                    statsObject
-                        .getJsonObject(itemKey)
-                        .getString(sent ? "packetsSent" : "packetsReceived"));
-            double loss = (100 * packetsLost) / (packetsCount + packetsLost);
-            packetLoss.put(itemKey, df.format(loss / 100));
-          }
-        }
-      }
+    for (AVStream stream : getLastAVStreams(mediaType)) {
+      long packetsLost = Long.parseLong(stream.statObject.getString("packetsLost"));
+      long packetsCount = Long.parseLong(
+          stream.statObject.getString(stream.sent ? "packetsSent" : "packetsReceived"));
+      double loss = (100 * packetsLost) / (packetsCount + packetsLost);
+      packetLoss.put(stream.itemKey, df.format(loss / 100));
     }
     return packetLoss;
   }
 
   public Map<String, String> getAudiosJitter() {
-    JsonObject lastStatObject = this.getLastObject();
     Map<String, String> jitterMap = new HashMap<>();
-    if (lastStatObject != null) {
-      for (String statObjectKey : lastStatObject.keySet()) {
-        JsonObject statsObject = lastStatObject.getJsonObject(statObjectKey);
-        for (String itemKey : statsObject.keySet()) {
-          boolean sent = isSendAV(statsObject.getJsonObject(itemKey), AUDIO);
-          if (statsObject.containsKey(itemKey)
-              && (isRecvAV(statsObject.getJsonObject(itemKey), AUDIO) || sent)) {
-            String jitter = statsObject.getJsonObject(itemKey).getString("googJitterReceived");
-            jitterMap.put(itemKey, "" + jitter);
-          }
-        }
-      }
+    for (AVStream stream : getLastAVStreams(AUDIO)) {
+      String jitter = stream.statObject.getString("googJitterReceived");
+      jitterMap.put(stream.itemKey, "" + jitter);
     }
     return jitterMap;
   }
 
-  private JsonObject getFirstAppearanceOf(String itemKey) {
-    for (int i = 0; i < this.size(); i++) {
-      for (String statObjectKey : this.get(i).keySet()) {
-        JsonObject statsObject = this.get(i).getJsonObject(statObjectKey);
-        if (statsObject.containsKey(itemKey)) {
-          return statsObject.getJsonObject(itemKey);
-        }
-      }
-    }
-    return null;
-  }
-
   /**
    * Get the list of googFrameRateReceived values as Map Map<String, String>
    *
@@ -155,23 +110,22 @@ public class MultiPCStatsArray extends BasePCStatsArray {
   }
 
   public Map<String, String> getTotalAVBytes(String mediaType) {
-    JsonObject lastStatObject = this.getLastObject();
     Map<String, String> totalVideosBytes = new HashMap<>();
-    if (lastStatObject != null) {
-      for (String statObjectKey : lastStatObject.keySet()) {
-        JsonObject statsObject = lastStatObject.getJsonObject(statObjectKey);
-        for (String itemKey : statsObject.keySet()) {
-          if (isRecvAV(statsObject.getJsonObject(itemKey), mediaType)) {
-            totalVideosBytes.put(
-                itemKey, statsObject.getJsonObject(itemKey).getString("bytesReceived"));
-          }
-          if (isSendAV(statsObject.getJsonObject(itemKey), mediaType)) {
-            totalVideosBytes.put(
-                itemKey, statsObject.getJsonObject(itemKey).getString("bytesSent"));
-          }
-        }
-      }
+    for (AVStream stream : getLastAVStreams(mediaType)) {
+      totalVideosBytes.put(stream.itemKey,
+          stream.statObject.getString(stream.sent ? "bytesSent" : "bytesReceived"));
     }
     return totalVideosBytes;
   }
+
+  @Override
+  protected Map<String, JsonObject> getStatsObjects(JsonObject sample) {
+    Map<String, JsonObject> statsObjects = new LinkedHashMap<>();
+    for (Map.Entry<String, JsonValue> entry : sample.entrySet()) {
+      if (entry.getValue() instanceof JsonObject) {
+        statsObjects.put(entry.getKey(), (JsonObject) entry.getValue());
+      }
+    }
+    return statsObjects;
+  }
 }
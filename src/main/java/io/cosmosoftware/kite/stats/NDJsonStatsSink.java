@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.json.JsonValue;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@link StatsSink} writing one compact JSON line per sample,
+ * <tt>{"pc": index, "stats": sample}</tt>, optionally gzipped.
+ */
+public class NDJsonStatsSink implements StatsSink {
+
+  private final File file;
+  private final Writer writer;
+  private long sampleCount;
+
+  /**
+   * Instantiates a new NDJSON stats sink.
+   *
+   * @param file the file
+   * @param gzip whether to compress the file
+   * @throws IOException if the file cannot be created
+   */
+  public NDJsonStatsSink(File file, boolean gzip) throws IOException {
+    this.file = file;
+    this.writer = new BufferedWriter(
+        new OutputStreamWriter(openStream(file, gzip), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Opens a buffered stream to a file, optionally gzipped.
+   *
+   * @param file the file
+   * @param gzip whether to compress the file
+   * @return the stream
+   * @throws IOException if the file cannot be created
+   */
+  static OutputStream openStream(File file, boolean gzip) throws IOException {
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+    return gzip ? new GZIPOutputStream(out, 8192) : out;
+  }
+
+  /**
+   * Writes a value as compact JSON, without building its string representation unless it is a
+   * javax.json value.
+   *
+   * @param writer the writer
+   * @param value the value
+   * @throws IOException if the value cannot be written
+   */
+  static void writeJson(Writer writer, Object value) throws IOException {
+    if (value instanceof JsonValue) {
+      writer.write(value.toString());
+      return;
+    }
+    Object json = JSONObject.wrap(value);
+    if (json instanceof JSONObject) {
+      ((JSONObject) json).write(writer);
+    } else if (json instanceof JSONArray) {
+      ((JSONArray) json).write(writer);
+    } else {
+      writer.write(JSONObject.valueToString(json));
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    writer.close();
+  }
+
+  @Override
+  public File getFile() {
+    return file;
+  }
+
+  @Override
+  public synchronized long getSampleCount() {
+    return sampleCount;
+  }
+
+  @Override
+  public synchronized void write(int pc, Object sample) throws IOException {
+    writer.write("{\"pc\":");
+    writer.write(Integer.toString(pc));
+    writer.write(",\"stats\":");
+    writeJson(writer, sample);
+    writer.write("}\n");
+    sampleCount++;
+  }
+}
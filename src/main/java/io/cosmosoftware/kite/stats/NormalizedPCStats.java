@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import javax.json.JsonObject;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The stats of a single peer connection, normalized to {@link RTCStreamStats} as they are added,
+ * so that the same summaries are computed from legacy or standard stats.
+ * <p>
+ * Only the first and the last appearance of each stream are kept. The summaries are the ones of
+ * {@link SinglePCStatsArray}, computed from the streams of the last sample, with the jitter and
+ * round trip time in ms and the frame rate in frames per second.
+ */
+public class NormalizedPCStats implements PCStats {
+
+  private final Map<String, RTCStreamStats> firstAppearances = new HashMap<>();
+  private List<RTCStreamStats> lastStreams = new ArrayList<>();
+  private int samples;
+
+  private static String format(double value) {
+    if (Double.isNaN(value)) {
+      return null;
+    }
+    return value == Math.rint(value) && !Double.isInfinite(value)
+        ? Long.toString((long) value) : Double.toString(value);
+  }
+
+  /**
+   * Adds a sample, either in the <tt>{"localStats": {...}}</tt> form of the samples of
+   * {@link SinglePCStatsArray} or as the stats themselves, keyed by stat id.
+   *
+   * @param sample the sample
+   */
+  public void add(JsonObject sample) {
+    addStreams(StatsNormalizer.normalize(sample));
+  }
+
+  /**
+   * Adds the streams of a sample.
+   *
+   * @param streams the streams
+   */
+  public synchronized void addStreams(List<RTCStreamStats> streams) {
+    samples++;
+    for (RTCStreamStats stream : streams) {
+      firstAppearances.putIfAbsent(stream.getKind() + ":" + stream.getId(), stream);
+    }
+    lastStreams = new ArrayList<>(streams);
+  }
+
+  /**
+   * Adds a sample given as the array of stats returned by the web driver for getStats().
+   *
+   * @param statArray the list of stats
+   */
+  public void appendStatArray(List<?> statArray) {
+    addStreams(StatsNormalizer.normalize(statArray));
+  }
+
+  @Override
+  public synchronized Map<String, String> getAVAvgBitrate(String mediaType) {
+    Map<String, String> videosAvgBitrateMap = new HashMap<>();
+    if (samples <= 1) {
+      return videosAvgBitrateMap;
+    }
+    for (RTCStreamStats stream : getLastStreams(mediaType)) {
+      RTCStreamStats first = firstAppearances.get(mediaType + ":" + stream.getId());
+      String value = "";
+      long duration = (long) stream.getTimestamp() - (long) first.getTimestamp();
+      if (!Double.isNaN(first.getBytes() + stream.getBytes()) && duration > 0) {
+        value = "" + (((long) stream.getBytes() - (long) first.getBytes()) * 8000) / duration;
+      }
+      videosAvgBitrateMap.put(stream.getId(), value);
+    }
+    return videosAvgBitrateMap;
+  }
+
+  @Override
+  public synchronized Map<String, String> getAVPacketLoss(String mediaType) {
+    DecimalFormat df = new DecimalFormat("#0.0000");
+    Map<String, String> packetLossMap = new HashMap<>();
+    for (RTCStreamStats stream : getLastStreams(mediaType)) {
+      double packetsLost = stream.getPacketsLost();
+      double packetsCount = stream.getPackets();
+      double loss = Double.isNaN(packetsLost + packetsCount) ? -1.0
+          : (100 * packetsLost) / (packetsCount + packetsLost);
+      packetLossMap.put(stream.getId(), df.format(loss));
+    }
+    return packetLossMap;
+  }
+
+  @Override
+  public synchronized Map<String, String> getAudiosJitter() {
+    Map<String, String> jitterMap = new HashMap<>();
+    for (RTCStreamStats stream : getLastStreams(AUDIO)) {
+      String jitter = stream.isSent() ? "NA" : format(stream.getJitter());
+      jitterMap.put(stream.getId(), jitter != null ? jitter : "-1");
+    }
+    return jitterMap;
+  }
+
+  @Override
+  public synchronized Map<String, String> getFrameRate() {
+    Map<String, String> resultMap = new HashMap<>();
+    for (RTCStreamStats stream : getLastStreams(VIDEO)) {
+      String frameRate = format(stream.getFrameRate());
+      resultMap.put(stream.getId(), frameRate != null ? frameRate : "-1");
+    }
+    return resultMap;
+  }
+
+  /**
+   * Gets the streams of a media type in the last sample.
+   *
+   * @param mediaType the media type
+   * @return the streams
+   */
+  public synchronized List<RTCStreamStats> getLastStreams(String mediaType) {
+    List<RTCStreamStats> streams = new ArrayList<>();
+    for (RTCStreamStats stream : lastStreams) {
+      if (mediaType.equals(stream.getKind())) {
+        streams.add(stream);
+      }
+    }
+    return streams;
+  }
+
+  @Override
+  public synchronized String getSentVideoRtt() {
+    for (RTCStreamStats stream : getLastStreams(VIDEO)) {
+      if (stream.isSent()) {
+        String rtt = format(stream.getRoundTripTime());
+        return rtt != null ? rtt : "";
+      }
+    }
+    return "";
+  }
+
+  @Override
+  public synchronized Map<String, String> getTotalAVBytes(String mediaType) {
+    Map<String, String> totalVideosBytesMap = new HashMap<>();
+    for (RTCStreamStats stream : getLastStreams(mediaType)) {
+      String bytes = format(stream.getBytes());
+      if (bytes != null) {
+        totalVideosBytesMap.put(stream.getId(), bytes);
+      }
+    }
+    return totalVideosBytesMap;
+  }
+
+  /**
+   * Gets the number of samples.
+   *
+   * @return the number of samples
+   */
+  public synchronized int size() {
+    return samples;
+  }
+}
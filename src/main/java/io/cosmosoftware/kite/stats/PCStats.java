@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import java.util.Map;
+
+/**
+ * The summary of the stats collected over time for a peer connection, keyed by stat id.
+ */
+public interface PCStats {
+
+  /**
+   * The constant AUDIO.
+   */
+  String AUDIO = "audio";
+  /**
+   * The constant VIDEO.
+   */
+  String VIDEO = "video";
+
+  /**
+   * Gets av avg bitrate.
+   *
+   * @param mediaType the media type
+   * @return the av avg bitrate
+   */
+  Map<String, String> getAVAvgBitrate(String mediaType);
+
+  /**
+   * Gets av packet loss.
+   *
+   * @param mediaType the media type
+   * @return the av packet loss
+   */
+  Map<String, String> getAVPacketLoss(String mediaType);
+
+  /**
+   * Gets audios jitter.
+   *
+   * @return the audios jitter
+   */
+  Map<String, String> getAudiosJitter();
+
+  /**
+   * Gets frame rate.
+   *
+   * @return the frame rate
+   */
+  Map<String, String> getFrameRate();
+
+  /**
+   * Get the sender's googRtt from the PC's ssrc_4030852498_send object with mediaType = "video"
+   *
+   * @return the sender's video googRtt value (as a String)
+   */
+  String getSentVideoRtt();
+
+  /**
+   * Gets total av bytes.
+   *
+   * @param mediaType the media type
+   * @return the total av bytes
+   */
+  Map<String, String> getTotalAVBytes(String mediaType);
+}
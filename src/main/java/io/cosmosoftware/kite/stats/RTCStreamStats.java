@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+/**
+ * The stats of a sent or received audio or video stream in one sample, in a canonical form that
+ * does not depend on whether they were collected as legacy (goog*) or standard stats.
+ * <p>
+ * Instances are built by {@link StatsNormalizer}. The numeric values are NaN when the browser did
+ * not report them. The durations are in ms, whatever the unit of the original stats.
+ */
+public final class RTCStreamStats {
+
+  String id;
+  String kind;
+  boolean sent;
+  String trackId;
+  String codec;
+  double timestamp = Double.NaN;
+  double bytes = Double.NaN;
+  double packets = Double.NaN;
+  double packetsLost = Double.NaN;
+  double jitter = Double.NaN;
+  double roundTripTime = Double.NaN;
+  double frameRate = Double.NaN;
+  double framesDecoded = Double.NaN;
+  double framesDropped = Double.NaN;
+  double freezeCount = Double.NaN;
+  double totalFreezesDuration = Double.NaN;
+
+  RTCStreamStats() {
+  }
+
+  /**
+   * Gets the bytes sent or received since the stream started.
+   *
+   * @return the bytes
+   */
+  public double getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Gets the codec, its mime type or the id of its codec stats if the mime type is not known.
+   *
+   * @return the codec, or null
+   */
+  public String getCodec() {
+    return codec;
+  }
+
+  /**
+   * Gets the number of frames per second.
+   *
+   * @return the frame rate
+   */
+  public double getFrameRate() {
+    return frameRate;
+  }
+
+  /**
+   * Gets the number of frames decoded since the stream started.
+   *
+   * @return the frames decoded
+   */
+  public double getFramesDecoded() {
+    return framesDecoded;
+  }
+
+  /**
+   * Gets the number of frames dropped since the stream started.
+   *
+   * @return the frames dropped
+   */
+  public double getFramesDropped() {
+    return framesDropped;
+  }
+
+  /**
+   * Gets the number of video freezes since the stream started.
+   *
+   * @return the freeze count
+   */
+  public double getFreezeCount() {
+    return freezeCount;
+  }
+
+  /**
+   * Gets the id of the original stats.
+   *
+   * @return the id
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Gets the jitter, in ms.
+   *
+   * @return the jitter
+   */
+  public double getJitter() {
+    return jitter;
+  }
+
+  /**
+   * Gets the media kind, {@link PCStats#AUDIO} or {@link PCStats#VIDEO}.
+   *
+   * @return the kind
+   */
+  public String getKind() {
+    return kind;
+  }
+
+  /**
+   * Gets the packets sent or received since the stream started.
+   *
+   * @return the packets
+   */
+  public double getPackets() {
+    return packets;
+  }
+
+  /**
+   * Gets the packets lost since the stream started, as reported by the receiver.
+   *
+   * @return the packets lost
+   */
+  public double getPacketsLost() {
+    return packetsLost;
+  }
+
+  /**
+   * Gets the round trip time, in ms.
+   *
+   * @return the round trip time
+   */
+  public double getRoundTripTime() {
+    return roundTripTime;
+  }
+
+  /**
+   * Gets the time of the sample, in ms.
+   *
+   * @return the timestamp
+   */
+  public double getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Gets the total duration of the video freezes since the stream started, in ms.
+   *
+   * @return the total freezes duration
+   */
+  public double getTotalFreezesDuration() {
+    return totalFreezesDuration;
+  }
+
+  /**
+   * Gets the track id.
+   *
+   * @return the track id, or null
+   */
+  public String getTrackId() {
+    return trackId;
+  }
+
+  /**
+   * Checks whether the stream is sent or received.
+   *
+   * @return true if the stream is sent
+   */
+  public boolean isSent() {
+    return sent;
+  }
+}
@@ -8,15 +8,46 @@ import javax.json.Json;
 import javax.json.JsonObjectBuilder;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Standard stats take from https://www.w3.org/TR/webrtc-stats/
+ * <p>
+ * The keys of each stats type are computed once, for each combination of media kinds, and kept
+ * in immutable sets that can be used to validate the collected stats.
  */
 public class StandardRTCStats {
 
-  private static String[] RTCAudioHandlerStats() {
+  private static final int AUDIO_VIDEO = 3;
+  private static final String[] TYPES = {
+      "codec",
+      "inbound-rtp",
+      "outbound-rtp",
+      "remote-inbound-rtp",
+      "remote-outbound-rtp",
+      "csrc",
+      "peer-connection",
+      "data-channel",
+      "stream",
+      "track",
+      "sender",
+      "receiver",
+      "transport",
+      "candidate-pair",
+      "local-candidate",
+      "remote-candidate",
+      "certificate"
+  };
+  // the keys of each type, for each media kinds mask
+  private static final List<Map<String, Set<String>>> SCHEMAS = buildSchemas();
+
+  private static Set<String> RTCAudioHandlerStats() {
     final String[] keys = {
         "audioLevel",
         "totalAudioEnergy",
@@ -26,7 +57,7 @@ public class StandardRTCStats {
     return merge(RTCMediaHandlerStats(), keys);
   }
 
-  private static String[] RTCAudioReceiverStats() {
+  private static Set<String> RTCAudioReceiverStats() {
     final String[] keys = {
         "estimatedPlayoutTimestamp",
         "jitterBufferDelay",
@@ -38,7 +69,7 @@ public class StandardRTCStats {
     return merge(RTCAudioHandlerStats(), keys);
   }
 
-  private static String[] RTCAudioSenderStats() {
+  private static Set<String> RTCAudioSenderStats() {
     final String[] keys = {
         "echoReturnLoss",
         "echoReturnLossEnhancement",
@@ -48,7 +79,7 @@ public class StandardRTCStats {
   }
 
   // certificate
-  private static String[] RTCCertificateStats() {
+  private static Set<String> RTCCertificateStats() {
     final String[] keys = {
         "fingerprint",
         "fingerprintAlgorithm",
@@ -59,7 +90,7 @@ public class StandardRTCStats {
   }
 
   // codec
-  private static String[] RTCCodecStats() {
+  private static Set<String> RTCCodecStats() {
     String[] keys = {
         "payloadType",
         "codecType",
@@ -74,7 +105,7 @@ public class StandardRTCStats {
   }
 
   // data-channel
-  private static String[] RTCDataChannelStats() {
+  private static Set<String> RTCDataChannelStats() {
     final String[] keys = {
         "label",
         "protocol",
@@ -90,7 +121,7 @@ public class StandardRTCStats {
   }
 
   // candidate-pair
-  private static String[] RTCIceCandidatePairStats() {
+  private static Set<String> RTCIceCandidatePairStats() {
     final String[] keys = {
         "transportId",
         "localCandidateId",
@@ -124,7 +155,7 @@ public class StandardRTCStats {
   }
 
   // local-candidate + remote-candidate
-  private static String[] RTCIceCandidateStats() {
+  private static Set<String> RTCIceCandidateStats() {
     final String[] keys = {
         "transportId",
         "networkType",
@@ -140,7 +171,7 @@ public class StandardRTCStats {
     return merge(RTCStats(), keys);
   }
 
-  private static String[] RTCInboundRtpStreamStats() {
+  private static Set<String> RTCInboundRtpStreamStats() {
     final String[] keys = {
         "trackId",
         "receiverId",
@@ -158,7 +189,7 @@ public class StandardRTCStats {
   }
 
   // track
-  private static String[] RTCMediaHandlerStats() {
+  private static Set<String> RTCMediaHandlerStats() {
     final String[] keys = {
         "trackIdentifier",
         "remoteSource",
@@ -170,7 +201,7 @@ public class StandardRTCStats {
   }
 
   // stream
-  private static String[] RTCMediaStreamStats() {
+  private static Set<String> RTCMediaStreamStats() {
     final String[] keys = {
         "streamIdentifier",
         "trackIds",
@@ -178,7 +209,7 @@ public class StandardRTCStats {
     return merge(RTCStats(), keys);
   }
 
-  private static String[] RTCOutboundRtpStreamStats() {
+  private static Set<String> RTCOutboundRtpStreamStats() {
     final String[] keys = {
         "trackId",
         "senderId",
@@ -196,7 +227,7 @@ public class StandardRTCStats {
   }
 
   // peer-connection
-  private static String[] RTCPeerConnectionStats() {
+  private static Set<String> RTCPeerConnectionStats() {
     final String[] keys = {
         "dataChannelsOpened",
         "dataChannelsClosed",
@@ -207,7 +238,7 @@ public class StandardRTCStats {
   }
 
   // inbound-rtp
-  private static String[] RTCReceivedRtpStreamStats() {
+  private static Set<String> RTCReceivedRtpStreamStats() {
     final String[] keys = {
         "packetsReceived",
         "packetsLost",
@@ -227,7 +258,7 @@ public class StandardRTCStats {
   }
 
   // remote-inbound-rtp
-  private static String[] RTCRemoteInboundRtpStreamStats() {
+  private static Set<String> RTCRemoteInboundRtpStreamStats() {
     final String[] keys = {
         "localId",
         "roundTripTime",
@@ -237,7 +268,7 @@ public class StandardRTCStats {
   }
 
   // remote-outbound-rtp
-  private static String[] RTCRemoteOutboundRtpStreamStats() {
+  private static Set<String> RTCRemoteOutboundRtpStreamStats() {
     final String[] keys = {
         "localId",
         "remoteTimestamp"
@@ -246,7 +277,7 @@ public class StandardRTCStats {
   }
 
   // csrc
-  private static String[] RTCRtpContributingSourceStats() {
+  private static Set<String> RTCRtpContributingSourceStats() {
     final String[] keys = {
         "contributorSsrc",
         "inboundRtpStreamId",
@@ -257,7 +288,7 @@ public class StandardRTCStats {
   }
 
   // RTCRtpStreamStats
-  private static String[] RTCRtpStreamStats() {
+  private static Set<String> RTCRtpStreamStats() {
     final String[] keys = {
         "ssrc",
         "kind",
@@ -272,16 +303,16 @@ public class StandardRTCStats {
     return merge(RTCStats(), keys);
   }
 
-  private static String[] RTCSenderAudioTrackAttachmentStats() {
+  private static Set<String> RTCSenderAudioTrackAttachmentStats() {
     return RTCAudioSenderStats();
   }
 
-  private static String[] RTCSenderVideoTrackAttachmentStats() {
+  private static Set<String> RTCSenderVideoTrackAttachmentStats() {
     return RTCVideoSenderStats();
   }
 
   // outbound-rtp
-  private static String[] RTCSentRtpStreamStats() {
+  private static Set<String> RTCSentRtpStreamStats() {
     final String[] keys = {
         "packetsSent",
         "packetsDiscardedOnSend",
@@ -293,17 +324,17 @@ public class StandardRTCStats {
   }
 
   // RTCStats type
-  private static String[] RTCStats() {
+  private static Set<String> RTCStats() {
     final String[] keys = {
         "timestamp",
         "type",
         "id"
     };
-    return keys;
+    return merge(Collections.emptySet(), keys);
   }
 
   // transport
-  private static String[] RTCTransportStats() {
+  private static Set<String> RTCTransportStats() {
     final String[] keys = {
         "packetsSent",
         "packetsReceived",
@@ -321,7 +352,7 @@ public class StandardRTCStats {
     return merge(RTCStats(), keys);
   }
 
-  private static String[] RTCVideoHandlerStats() {
+  private static Set<String> RTCVideoHandlerStats() {
     final String[] keys = {
         "frameWidth",
         "frameHeight",
@@ -330,7 +361,7 @@ public class StandardRTCStats {
     return merge(RTCMediaHandlerStats(), keys);
   }
 
-  private static String[] RTCVideoReceiverStats() {
+  private static Set<String> RTCVideoReceiverStats() {
     final String[] keys = {
         "estimatedPlayoutTimestamp",
         "jitterBufferDelay",
@@ -345,7 +376,7 @@ public class StandardRTCStats {
     return merge(RTCVideoHandlerStats(), keys);
   }
 
-  private static String[] RTCVideoSenderStats() {
+  private static Set<String> RTCVideoSenderStats() {
     final String[] keys = {
         "framesCaptured",
         "framesSent",
@@ -355,6 +386,40 @@ public class StandardRTCStats {
     return merge(RTCVideoHandlerStats(), keys);
   }
 
+  /**
+   * Gets the standard keys of a stats type.
+   *
+   * @param type the stats type, such as "inbound-rtp"
+   * @param audioVideo the media kinds of the track, sender and receiver stats: 1 for audio, 2 for
+   *     video, 3 for both
+   * @return the keys, in an immutable set, empty if the type is not a standard type
+   */
+  public static Set<String> getKeys(String type, int audioVideo) {
+    Set<String> keys = SCHEMAS.get(audioVideo & AUDIO_VIDEO).get(type);
+    return keys != null ? keys : Collections.emptySet();
+  }
+
+  /**
+   * Gets the keys of a stat that are not standard keys of its type.
+   *
+   * @param type the stats type
+   * @param keys the keys of the stat
+   * @param audioVideo the media kinds, see {@link #getKeys(String, int)}
+   * @return the keys that are not standard keys of the type, all of them if the type is not a
+   *     standard type
+   */
+  public static List<String> getNonStandardKeys(String type, Collection<String> keys,
+      int audioVideo) {
+    Set<String> standardKeys = getKeys(type, audioVideo);
+    List<String> nonStandardKeys = new ArrayList<>();
+    for (String key : keys) {
+      if (!standardKeys.contains(key)) {
+        nonStandardKeys.add(key);
+      }
+    }
+    return nonStandardKeys;
+  }
+
   /**
    * Gets standard get stats.
    *
@@ -364,70 +429,40 @@ public class StandardRTCStats {
    */
   public static JsonObjectBuilder getStandardGetStats(boolean dataChannleEnabled, int audioVideo) {
     final String[] standardTypeEnum = getStandardTypeEnum(dataChannleEnabled);
+    Map<String, Set<String>> schemas = SCHEMAS.get(audioVideo & AUDIO_VIDEO);
     JsonObjectBuilder tmpJsonObjectBuilder = Json.createObjectBuilder();
     for (String enumType : standardTypeEnum) {
-      String[] retval = null;
-      switch (enumType) {
-        case "codec":
-          retval = RTCCodecStats();
-          break;
-        case "inbound-rtp":
-          retval = RTCInboundRtpStreamStats();
-          break;
-        case "outbound-rtp":
-          retval = RTCOutboundRtpStreamStats();
-          break;
-        case "remote-inbound-rtp":
-          retval = RTCRemoteInboundRtpStreamStats();
-          break;
-        case "remote-outbound-rtp":
-          retval = RTCRemoteOutboundRtpStreamStats();
-          break;
-        case "csrc":
-          retval = RTCRtpContributingSourceStats();
-          break;
-        case "peer-connection":
-          retval = RTCPeerConnectionStats();
-          break;
-        case "data-channel":
-          retval = RTCDataChannelStats();
-          break;
-        case "stream":
-          retval = RTCMediaStreamStats();
-          break;
-        case "track":
-          retval = track(audioVideo);
-          break;
-        case "sender":
-          retval = sender(audioVideo);
-          break;
-        case "receiver":
-          retval = receiver(audioVideo);
-          break;
-        case "transport":
-          retval = RTCTransportStats();
-          break;
-        case "candidate-pair":
-          retval = RTCIceCandidatePairStats();
-          break;
-        case "local-candidate":
-          retval = RTCIceCandidateStats();
-          break;
-        case "remote-candidate":
-          retval = RTCIceCandidateStats();
-          break;
-        case "certificate":
-          retval = RTCCertificateStats();
-          break;
-      }
+      Set<String> retval = schemas.get(enumType);
       if (retval != null) {
-        tmpJsonObjectBuilder.add(enumType, Arrays.toString(retval));
+        tmpJsonObjectBuilder.add(enumType, retval.toString());
       }
     }
 
     return tmpJsonObjectBuilder;
   }
 
+  /**
+   * Checks whether a key is a standard key of a stats type.
+   *
+   * @param type the stats type
+   * @param key the key
+   * @param audioVideo the media kinds, see {@link #getKeys(String, int)}
+   * @return true if the key is a standard key of the type
+   */
+  public static boolean isStandardKey(String type, String key, int audioVideo) {
+    return getKeys(type, audioVideo).contains(key);
+  }
+
+  /**
+   * Checks whether a stats type is a standard type.
+   *
+   * @param type the stats type
+   * @return true if the type is a standard type
+   */
+  public static boolean isStandardType(String type) {
+    return SCHEMAS.get(0).containsKey(type);
+  }
+
   // RTCStatsType enum
   // audio = 01
   // video = 10
@@ -478,31 +513,46 @@ public class StandardRTCStats {
     return rtcStatsType;
   }
 
-  private static String[] merge(final String[] a, final String[] b) {
-    List<String> lst = Collections.synchronizedList(new ArrayList<>());;
-    for (String ele : a) {
-      if (!lst.contains(ele)) {
-        lst.add(ele);
-      }
-    }
-    for (String ele : b) {
-      if (!lst.contains(ele)) {
-        lst.add(ele);
+  private static List<Map<String, Set<String>>> buildSchemas() {
+    List<Map<String, Set<String>>> schemas = new ArrayList<>();
+    for (int audioVideo = 0; audioVideo <= AUDIO_VIDEO; audioVideo++) {
+      Map<String, Set<String>> typeSchemas = new LinkedHashMap<>();
+      for (String type : TYPES) {
+        Set<String> keys = audioVideo > 0 && !isMediaDependent(type)
+            ? schemas.get(0).get(type) : Collections.unmodifiableSet(schema(type, audioVideo));
+        typeSchemas.put(type, keys);
       }
+      schemas.add(Collections.unmodifiableMap(typeSchemas));
     }
-    return lst.toArray(new String[lst.size()]);
+    return Collections.unmodifiableList(schemas);
+  }
+
+  private static boolean isMediaDependent(String type) {
+    return type.equals("track") || type.equals("sender") || type.equals("receiver");
+  }
+
+  private static Set<String> merge(final Set<String> a, final String... b) {
+    Set<String> set = new LinkedHashSet<>(a);
+    set.addAll(Arrays.asList(b));
+    return set;
+  }
+
+  private static Set<String> merge(final Set<String> a, final Set<String> b) {
+    Set<String> set = new LinkedHashSet<>(a);
+    set.addAll(b);
+    return set;
   }
 
   // receiver
   // audio = 01
   // video = 10
   // audio + video = 11
-  private static String[] receiver(int receiverScore) {
+  private static Set<String> receiver(int receiverScore) {
     final String[] keys = {
         "streamIdentifier",
         "trackIds",
     };
-    String[] retval = new String[0];
+    Set<String> retval = Collections.emptySet();
     if ((receiverScore & (1 << 0)) > 0) {
       retval = merge(retval, RTCAudioReceiverStats());
     }
@@ -517,12 +567,12 @@ public class StandardRTCStats {
   // audio = 01
   // video = 10
   // audio + video = 11
-  private static String[] sender(int senderScore) {
+  private static Set<String> sender(int senderScore) {
     final String[] keys = {
         "streamIdentifier",
         "trackIds",
     };
-    String[] retval = new String[0];
+    Set<String> retval = Collections.emptySet();
     if ((senderScore & (1 << 0)) > 0) {
       retval = merge(retval, RTCAudioSenderStats());
     }
@@ -533,6 +583,47 @@ public class StandardRTCStats {
     return retval;
   }
 
+  private static Set<String> schema(String type, int audioVideo) {
+    switch (type) {
+      case "codec":
+        return RTCCodecStats();
+      case "inbound-rtp":
+        return RTCInboundRtpStreamStats();
+      case "outbound-rtp":
+        return RTCOutboundRtpStreamStats();
+      case "remote-inbound-rtp":
+        return RTCRemoteInboundRtpStreamStats();
+      case "remote-outbound-rtp":
+        return RTCRemoteOutboundRtpStreamStats();
+      case "csrc":
+        return RTCRtpContributingSourceStats();
+      case "peer-connection":
+        return RTCPeerConnectionStats();
+      case "data-channel":
+        return RTCDataChannelStats();
+      case "stream":
+        return RTCMediaStreamStats();
+      case "track":
+        return track(audioVideo);
+      case "sender":
+        return sender(audioVideo);
+      case "receiver":
+        return receiver(audioVideo);
+      case "transport":
+        return RTCTransportStats();
+      case "candidate-pair":
+        return RTCIceCandidatePairStats();
+      case "local-candidate":
+        return RTCIceCandidateStats();
+      case "remote-candidate":
+        return RTCIceCandidateStats();
+      case "certificate":
+        return RTCCertificateStats();
+      default:
+        return null;
+    }
+  }
+
   /**
    * Returns JavaScript to collect browser stats using getStats() API
    *
@@ -586,12 +677,12 @@ public class StandardRTCStats {
   // audio = 01
   // video = 10
   // audio + video = 11
-  private static String[] track(int trackScore) {
+  private static Set<String> track(int trackScore) {
     final String[] keys = {
         "streamIdentifier",
         "trackIds",
     };
-    String[] retval = new String[0];
+    Set<String> retval = Collections.emptySet();
     if ((trackScore & (1 << 0)) > 0) {
       retval = merge(retval, RTCSenderAudioTrackAttachmentStats());
     }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import io.cosmosoftware.kite.interfaces.JsonBuilder;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+import java.util.Map;
+
+/**
+ * The stats of a group of clients, such as a room or a whole test, computed by a
+ * {@link StatsAggregator}.
+ */
+public class StatsAggregate implements JsonBuilder {
+
+  private final StatsHistogram bitrates = new StatsHistogram(3, 1);
+  private final StatsHistogram packetLosses = new StatsHistogram(3, 0.01);
+  private final StatsSummarizer summarizer = new StatsSummarizer();
+  private int clientCount;
+  private int streamCount;
+  private int streamsBelowThreshold;
+  private long totalBitrate;
+
+  private static double parse(String value) {
+    try {
+      return value == null || value.isEmpty() ? Double.NaN : Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * Adds the stats of a client.
+   *
+   * @param stats the stats of the client
+   * @param minVideoBitrate the average bitrate in bps below which a video stream is counted as
+   *     below threshold
+   * @param minAudioBitrate the average bitrate in bps below which an audio stream is counted as
+   *     below threshold
+   */
+  void add(PCStats stats, long minVideoBitrate, long minAudioBitrate) {
+    clientCount++;
+    addStreams(stats, PCStats.VIDEO, minVideoBitrate);
+    addStreams(stats, PCStats.AUDIO, minAudioBitrate);
+    if (stats instanceof BasePCStatsArray) {
+      summarizer.merge(((BasePCStatsArray) stats).summarize());
+    }
+  }
+
+  private void addStreams(PCStats stats, String mediaType, long minBitrate) {
+    for (Map.Entry<String, String> stream : stats.getAVAvgBitrate(mediaType).entrySet()) {
+      streamCount++;
+      double bitrate = parse(stream.getValue());
+      if (Double.isNaN(bitrate)) {
+        continue;
+      }
+      bitrates.record(bitrate);
+      totalBitrate += (long) bitrate;
+      if (bitrate < minBitrate) {
+        streamsBelowThreshold++;
+      }
+    }
+    for (String loss : stats.getAVPacketLoss(mediaType).values()) {
+      packetLosses.record(parse(loss));
+    }
+  }
+
+  @Override
+  public JsonObjectBuilder buildJsonObjectBuilder() {
+    return Json.createObjectBuilder()
+        .add("clients", clientCount)
+        .add("streams", streamCount)
+        .add("streamsBelowThreshold", streamsBelowThreshold)
+        .add("totalBitrate", totalBitrate)
+        .add("bitrate", bitrates.buildJsonObjectBuilder())
+        .add("packetLoss", packetLosses.buildJsonObjectBuilder())
+        .add("overTime", summarizer.buildJsonObjectBuilder());
+  }
+
+  /**
+   * Gets the histogram of the average bitrates of the streams, in bps.
+   *
+   * @return the histogram
+   */
+  public StatsHistogram getBitrates() {
+    return bitrates;
+  }
+
+  /**
+   * Gets the number of clients.
+   *
+   * @return the number of clients
+   */
+  public int getClientCount() {
+    return clientCount;
+  }
+
+  /**
+   * Gets the histogram of the packet loss of the streams at the end of the call, in %.
+   *
+   * @return the histogram
+   */
+  public StatsHistogram getPacketLosses() {
+    return packetLosses;
+  }
+
+  /**
+   * Gets the number of audio and video streams.
+   *
+   * @return the number of streams
+   */
+  public int getStreamCount() {
+    return streamCount;
+  }
+
+  /**
+   * Gets the number of streams whose average bitrate is below the threshold of their media type.
+   *
+   * @return the number of streams
+   */
+  public int getStreamsBelowThreshold() {
+    return streamsBelowThreshold;
+  }
+
+  /**
+   * Gets the distributions over time of the RTT, jitter, packet loss and frame rate, for the
+   * clients whose stats are kept as samples.
+   *
+   * @return the summarizer
+   */
+  public StatsSummarizer getSummarizer() {
+    return summarizer;
+  }
+
+  /**
+   * Gets the sum of the average bitrates of the streams, in bps.
+   *
+   * @return the total bitrate
+   */
+  public long getTotalBitrate() {
+    return totalBitrate;
+  }
+
+  /**
+   * Adds the stats of another group of clients to this one.
+   *
+   * @param other the other aggregate
+   */
+  void merge(StatsAggregate other) {
+    clientCount += other.clientCount;
+    streamCount += other.streamCount;
+    streamsBelowThreshold += other.streamsBelowThreshold;
+    totalBitrate += other.totalBitrate;
+    bitrates.merge(other.bitrates);
+    packetLosses.merge(other.packetLosses);
+    summarizer.merge(other.summarizer);
+  }
+}
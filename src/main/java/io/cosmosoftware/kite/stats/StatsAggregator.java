@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Aggregates the stats of the clients of a load test into room level and test level
+ * {@link StatsAggregate}s, in parallel.
+ * <p>
+ * The clients are split between the workers of a fork/join pool, each computing the summaries of
+ * its clients into partial aggregates per room, which are then merged. The stats of a client are
+ * read by a single worker, and must not be modified during the aggregation.
+ */
+public class StatsAggregator {
+
+  private static final int CLIENTS_PER_TASK = 4;
+
+  private final ForkJoinPool pool;
+  private final long minVideoBitrate;
+  private final long minAudioBitrate;
+
+  /**
+   * Instantiates a new Stats aggregator running on the common fork/join pool.
+   *
+   * @param minVideoBitrate the average bitrate in bps below which a video stream is counted as
+   *     below threshold
+   * @param minAudioBitrate the average bitrate in bps below which an audio stream is counted as
+   *     below threshold
+   */
+  public StatsAggregator(long minVideoBitrate, long minAudioBitrate) {
+    this(ForkJoinPool.commonPool(), minVideoBitrate, minAudioBitrate);
+  }
+
+  /**
+   * Instantiates a new Stats aggregator.
+   *
+   * @param pool the fork/join pool to run on
+   * @param minVideoBitrate the average bitrate in bps below which a video stream is counted as
+   *     below threshold
+   * @param minAudioBitrate the average bitrate in bps below which an audio stream is counted as
+   *     below threshold
+   */
+  public StatsAggregator(ForkJoinPool pool, long minVideoBitrate, long minAudioBitrate) {
+    this.pool = pool;
+    this.minVideoBitrate = minVideoBitrate;
+    this.minAudioBitrate = minAudioBitrate;
+  }
+
+  /**
+   * Aggregates the stats of all the clients into a test level view.
+   *
+   * @param clientsByRoom the stats of the clients, by client id, by room id
+   * @return the aggregate
+   */
+  public StatsAggregate aggregate(Map<String, ? extends Map<String, ? extends PCStats>>
+      clientsByRoom) {
+    StatsAggregate test = new StatsAggregate();
+    for (StatsAggregate room : aggregateRooms(clientsByRoom).values()) {
+      test.merge(room);
+    }
+    return test;
+  }
+
+  /**
+   * Aggregates the stats of the clients of each room.
+   *
+   * @param clientsByRoom the stats of the clients, by client id, by room id
+   * @return the aggregates, by room id
+   */
+  public Map<String, StatsAggregate> aggregateRooms(
+      Map<String, ? extends Map<String, ? extends PCStats>> clientsByRoom) {
+    List<ClientStats> clients = new ArrayList<>();
+    for (Map.Entry<String, ? extends Map<String, ? extends PCStats>> room
+        : clientsByRoom.entrySet()) {
+      for (PCStats stats : room.getValue().values()) {
+        clients.add(new ClientStats(room.getKey(), stats));
+      }
+    }
+    Map<String, StatsAggregate> rooms = new TreeMap<>(pool.invoke(
+        new AggregateTask(clients, 0, clients.size())));
+    for (String roomId : clientsByRoom.keySet()) {
+      rooms.putIfAbsent(roomId, new StatsAggregate());
+    }
+    return rooms;
+  }
+
+  /**
+   * Aggregates the stats of all the clients and builds the room level and test level views.
+   *
+   * @param clientsByRoom the stats of the clients, by client id, by room id
+   * @return the json object builder, with the test level view under "test" and the room level
+   *     views under "rooms"
+   */
+  public JsonObjectBuilder buildJsonObjectBuilder(
+      Map<String, ? extends Map<String, ? extends PCStats>> clientsByRoom) {
+    StatsAggregate test = new StatsAggregate();
+    JsonObjectBuilder rooms = Json.createObjectBuilder();
+    for (Map.Entry<String, StatsAggregate> room : aggregateRooms(clientsByRoom).entrySet()) {
+      test.merge(room.getValue());
+      rooms.add(room.getKey(), room.getValue().buildJsonObjectBuilder());
+    }
+    return Json.createObjectBuilder()
+        .add("test", test.buildJsonObjectBuilder())
+        .add("rooms", rooms);
+  }
+
+  private static final class ClientStats {
+
+    final String roomId;
+    final PCStats stats;
+
+    private ClientStats(String roomId, PCStats stats) {
+      this.roomId = roomId;
+      this.stats = stats;
+    }
+  }
+
+  private final class AggregateTask extends RecursiveTask<Map<String, StatsAggregate>> {
+
+    /**
+     * The Constant serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    private final List<ClientStats> clients;
+    private final int from;
+    private final int to;
+
+    private AggregateTask(List<ClientStats> clients, int from, int to) {
+      this.clients = clients;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Map<String, StatsAggregate> compute() {
+      if (to - from <= CLIENTS_PER_TASK) {
+        Map<String, StatsAggregate> rooms = new HashMap<>();
+        for (ClientStats client : clients.subList(from, to)) {
+          rooms.computeIfAbsent(client.roomId, key -> new StatsAggregate())
+              .add(client.stats, minVideoBitrate, minAudioBitrate);
+        }
+        return rooms;
+      }
+      int middle = (from + to) >>> 1;
+      AggregateTask left = new AggregateTask(clients, from, middle);
+      left.fork();
+      Map<String, StatsAggregate> rooms = new AggregateTask(clients, middle, to).compute();
+      for (Map.Entry<String, StatsAggregate> room : left.join().entrySet()) {
+        StatsAggregate aggregate = rooms.putIfAbsent(room.getKey(), room.getValue());
+        if (aggregate != null) {
+          aggregate.merge(room.getValue());
+        }
+      }
+      return rooms;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import java.util.Arrays;
+
+/**
+ * A growable column of numeric values, one per row. Values are stored in a <tt>long[]</tt> as long
+ * as they are all integral, which is the case of the counters and timestamps, and in a
+ * <tt>double[]</tt> from the first fractional value on.
+ */
+final class StatsColumn {
+
+  private static final long MISSING = Long.MIN_VALUE;
+
+  private long[] longs;
+  private double[] doubles;
+  private int size;
+
+  /**
+   * Instantiates a new Stats column.
+   *
+   * @param capacity the initial capacity
+   */
+  StatsColumn(int capacity) {
+    this.longs = new long[Math.max(capacity, 4)];
+    Arrays.fill(this.longs, MISSING);
+  }
+
+  private void ensureCapacity(int row) {
+    int capacity = doubles != null ? doubles.length : longs.length;
+    if (row < capacity) {
+      return;
+    }
+    int newCapacity = Math.max(capacity * 2, row + 1);
+    if (doubles != null) {
+      doubles = Arrays.copyOf(doubles, newCapacity);
+      Arrays.fill(doubles, capacity, newCapacity, Double.NaN);
+    } else {
+      longs = Arrays.copyOf(longs, newCapacity);
+      Arrays.fill(longs, capacity, newCapacity, MISSING);
+    }
+  }
+
+  /**
+   * Gets the value of a row as a double.
+   *
+   * @param row the row
+   * @return the value, or NaN if the row has no value
+   */
+  double getDouble(int row) {
+    if (row < 0 || row >= size) {
+      return Double.NaN;
+    }
+    if (doubles != null) {
+      return doubles[row];
+    }
+    long value = longs[row];
+    return value == MISSING ? Double.NaN : value;
+  }
+
+  /**
+   * Checks whether a row has a value.
+   *
+   * @param row the row
+   * @return true if the row has a value
+   */
+  boolean isPresent(int row) {
+    return !Double.isNaN(getDouble(row));
+  }
+
+  /**
+   * Sets the value of a row.
+   *
+   * @param row the row
+   * @param value the value
+   */
+  void set(int row, double value) {
+    ensureCapacity(row);
+    if (doubles == null && value == Math.rint(value) && !Double.isInfinite(value)
+        && Math.abs(value) < 9.0E15) {
+      longs[row] = (long) value;
+    } else {
+      if (doubles == null) {
+        toDoubles();
+      }
+      doubles[row] = value;
+    }
+    size = Math.max(size, row + 1);
+  }
+
+  /**
+   * Sets the value of a row.
+   *
+   * @param row the row
+   * @param value the value
+   */
+  void set(int row, long value) {
+    ensureCapacity(row);
+    if (doubles == null) {
+      longs[row] = value;
+    } else {
+      doubles[row] = value;
+    }
+    size = Math.max(size, row + 1);
+  }
+
+  private void toDoubles() {
+    doubles = new double[longs.length];
+    for (int i = 0; i < longs.length; i++) {
+      doubles[i] = longs[i] == MISSING ? Double.NaN : longs[i];
+    }
+    longs = null;
+  }
+}
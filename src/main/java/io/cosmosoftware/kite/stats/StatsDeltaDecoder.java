@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reconstructs the getStats() samples sent by the browser in delta encoding.
+ * <p>
+ * A sample is an array of stats. In delta encoding, the first appearance of a stat is sent in
+ * full, and each following appearance only holds its id, the fields whose value changed since the
+ * previous sample, and under {@link #REMOVED} the names of the fields that disappeared. The static
+ * fields, such as the ids, codecs, track ids and ssrcs, are therefore only sent once.
+ * <p>
+ * The browser side encoder is defined by {@link #ENCODER_SCRIPT}. Each decoder must be fed the
+ * samples of one encoder state, in the order they were encoded.
+ */
+public class StatsDeltaDecoder {
+
+  /**
+   * The key under which a delta lists the fields that disappeared.
+   */
+  public static final String REMOVED = "-";
+
+  /**
+   * The script defining window.encodeStatsDelta(previous, sample), which encodes a sample against
+   * the previous stats, kept by id in the <tt>previous</tt> object, and updates them.
+   */
+  public static final String ENCODER_SCRIPT =
+      "window.encodeStatsDelta = function(previous, sample) {"
+      + "  return sample.map(stat => {"
+      + "    const last = previous[stat.id];"
+      + "    previous[stat.id] = stat;"
+      + "    if (!last) {"
+      + "      return stat;"
+      + "    }"
+      + "    const delta = {id: stat.id};"
+      + "    for (const key in stat) {"
+      + "      if (stat[key] !== last[key]) {"
+      + "        delta[key] = stat[key];"
+      + "      }"
+      + "    }"
+      + "    const removed = Object.keys(last).filter(key => !(key in stat));"
+      + "    if (removed.length > 0) {"
+      + "      delta['" + REMOVED + "'] = removed;"
+      + "    }"
+      + "    return delta;"
+      + "  });"
+      + "};";
+
+  private final List<Map<Object, Map<String, Object>>> previous = new ArrayList<>();
+  private volatile String stateName = newStateName();
+
+  private static String newStateName() {
+    return "StatsDelta_" + UUID.randomUUID().toString().replace("-", "");
+  }
+
+  /**
+   * Decodes a sample.
+   *
+   * @param pc the index of the peer connection, or 0 if there is only one
+   * @param sample the encoded sample, a list of stats as returned by the web driver
+   * @return the sample with all the fields of each stat
+   */
+  public synchronized List<Map<String, Object>> decode(int pc, Object sample) {
+    while (previous.size() <= pc) {
+      previous.add(new HashMap<>());
+    }
+    Map<Object, Map<String, Object>> previousStats = previous.get(pc);
+    List<Map<String, Object>> stats = new ArrayList<>();
+    for (Object item : (List<?>) sample) {
+      if (item == null) {
+        continue;
+      }
+      Map<?, ?> delta = (Map<?, ?>) item;
+      Object id = delta.get("id");
+      Map<String, Object> last = previousStats.get(id);
+      Map<String, Object> stat = last == null ? new LinkedHashMap<>() : new LinkedHashMap<>(last);
+      for (Map.Entry<?, ?> field : delta.entrySet()) {
+        if (!REMOVED.equals(field.getKey())) {
+          stat.put(field.getKey().toString(), field.getValue());
+        }
+      }
+      Object removed = delta.get(REMOVED);
+      if (removed instanceof List) {
+        for (Object name : (List<?>) removed) {
+          stat.remove(String.valueOf(name));
+        }
+      }
+      previousStats.put(id, stat);
+      stats.add(stat);
+    }
+    return stats;
+  }
+
+  /**
+   * Forgets the previous stats, on both sides: the following expressions encode against a new
+   * browser side state, so that the next sample is sent in full. To be called when a sample may
+   * have been encoded in the browser without being decoded, such as after a failed call.
+   */
+  public synchronized void reset() {
+    previous.clear();
+    stateName = newStateName();
+  }
+
+  /**
+   * Gets a JavaScript expression encoding a sample of a peer connection against the browser side
+   * state of this decoder.
+   *
+   * @param pc the index of the peer connection
+   * @param sampleExpression the JavaScript expression of the sample
+   * @return the JavaScript expression
+   */
+  public String getEncodeExpression(int pc, String sampleExpression) {
+    return "window.encodeStatsDelta((window." + stateName + " = window." + stateName
+        + " || [])[" + pc + "] = window." + stateName + "[" + pc + "] || {}, "
+        + sampleExpression + ")";
+  }
+
+  /**
+   * Gets a JavaScript expression encoding an array of samples, one per peer connection, against
+   * the browser side state of this decoder.
+   *
+   * @param samplesExpression the JavaScript expression of the samples
+   * @return the JavaScript expression
+   */
+  public String getEncodePerPCExpression(String samplesExpression) {
+    return "(" + samplesExpression + ").map((sample, pc) => window.encodeStatsDelta("
+        + "(window." + stateName + " = window." + stateName + " || [])[pc] = window."
+        + stateName + "[pc] || {}, sample))";
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the stat ids and field names of the getStats() reports as small integers, so that each
+ * name is stored once and the stats can be kept in arrays indexed by these integers.
+ */
+public final class StatsDictionary {
+
+  /**
+   * The dictionary of the field names, shared by all stats stores since all clients report the
+   * same fields.
+   */
+  public static final StatsDictionary FIELDS = new StatsDictionary();
+
+  private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+  private final List<String> names = new ArrayList<>();
+
+  /**
+   * Gets the id of a name, or -1 if the name has not been interned.
+   *
+   * @param name the name
+   * @return the id
+   */
+  public int idOf(String name) {
+    Integer id = ids.get(name);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Gets the id of a name, interning it if needed.
+   *
+   * @param name the name
+   * @return the id
+   */
+  public int intern(String name) {
+    Integer id = ids.get(name);
+    if (id != null) {
+      return id;
+    }
+    synchronized (names) {
+      return ids.computeIfAbsent(name, key -> {
+        names.add(key);
+        return names.size() - 1;
+      });
+    }
+  }
+
+  /**
+   * Gets the name of an id.
+   *
+   * @param id the id
+   * @return the name
+   */
+  public String nameOf(int id) {
+    synchronized (names) {
+      return names.get(id);
+    }
+  }
+
+  /**
+   * Gets the number of interned names.
+   *
+   * @return the size
+   */
+  public int size() {
+    return ids.size();
+  }
+}
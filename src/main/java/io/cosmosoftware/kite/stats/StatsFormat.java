@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The formats of the stats over time files.
+ */
+public enum StatsFormat {
+
+  /**
+   * A single JSON array holding an array of samples per peer connection.
+   */
+  JSON(".json"),
+  /**
+   * One compact JSON line per sample, <tt>{"pc": index, "stats": sample}</tt>.
+   */
+  NDJSON(".ndjson");
+
+  private final String extension;
+
+  StatsFormat(String extension) {
+    this.extension = extension;
+  }
+
+  /**
+   * Gets the file extension.
+   *
+   * @param gzip whether the file is compressed
+   * @return the extension
+   */
+  public String getExtension(boolean gzip) {
+    return gzip ? extension + ".gz" : extension;
+  }
+
+  /**
+   * Opens a sink writing in this format.
+   *
+   * @param directory the directory
+   * @param baseName the file name, without extension
+   * @param gzip whether to compress the file
+   * @return the sink
+   * @throws IOException if the file cannot be created
+   */
+  public StatsSink newSink(File directory, String baseName, boolean gzip) throws IOException {
+    File file = new File(directory, baseName + getExtension(gzip));
+    return this == NDJSON ? new NDJsonStatsSink(file, gzip) : new JsonStatsSink(file, gzip);
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import io.cosmosoftware.kite.interfaces.JsonBuilder;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative values with a bounded relative error, in the manner of an
+ * HdrHistogram, to get the percentiles of a value over a whole call in constant memory.
+ * <p>
+ * The values are counted in units of the resolution, in buckets whose width doubles with each
+ * power of two while keeping the given number of significant decimal digits. The buckets only
+ * grow with the magnitude of the largest value, not with the number of values. Two histograms of
+ * the same precision and resolution can be merged, for instance to cover all the clients of a load
+ * test.
+ */
+public class StatsHistogram implements JsonBuilder {
+
+  private final int significantDigits;
+  private final double resolution;
+  private final int subBucketBits;
+  private final int subBucketHalfCount;
+  private long[] counts;
+  private long totalCount;
+  private double min = Double.NaN;
+  private double max = Double.NaN;
+  private double sum;
+
+  /**
+   * Instantiates a new Stats histogram.
+   *
+   * @param significantDigits the number of significant decimal digits kept, from 1 to 5
+   * @param resolution the smallest difference between two values that is kept, such as 0.01 for
+   *     values in ms with a hundredth of a ms
+   */
+  public StatsHistogram(int significantDigits, double resolution) {
+    if (significantDigits < 1 || significantDigits > 5) {
+      throw new IllegalArgumentException("significantDigits must be between 1 and 5");
+    }
+    if (!(resolution > 0)) {
+      throw new IllegalArgumentException("resolution must be positive");
+    }
+    this.significantDigits = significantDigits;
+    this.resolution = resolution;
+    long largestSingleUnitValue = 2 * (long) Math.pow(10, significantDigits);
+    this.subBucketBits = 64 - Long.numberOfLeadingZeros(largestSingleUnitValue - 1);
+    this.subBucketHalfCount = 1 << (subBucketBits - 1);
+    this.counts = new long[2 * subBucketHalfCount];
+  }
+
+  private int indexOf(long units) {
+    if (units < 2 * subBucketHalfCount) {
+      return (int) units;
+    }
+    int shift = 64 - Long.numberOfLeadingZeros(units) - subBucketBits;
+    return (shift + 1) * subBucketHalfCount + (int) (units >> shift) - subBucketHalfCount;
+  }
+
+  /**
+   * Gets the value in the middle of a bucket.
+   */
+  private double valueOf(int index) {
+    if (index < 2 * subBucketHalfCount) {
+      return index * resolution;
+    }
+    int shift = index / subBucketHalfCount - 1;
+    long lowest = (long) (index % subBucketHalfCount + subBucketHalfCount) << shift;
+    return (lowest + ((1L << shift) - 1) / 2.0) * resolution;
+  }
+
+  @Override
+  public synchronized JsonObjectBuilder buildJsonObjectBuilder() {
+    JsonObjectBuilder builder = Json.createObjectBuilder().add("count", totalCount);
+    if (totalCount > 0) {
+      builder.add("min", min)
+          .add("mean", getMean())
+          .add("p50", getPercentile(50))
+          .add("p95", getPercentile(95))
+          .add("p99", getPercentile(99))
+          .add("max", max);
+    }
+    return builder;
+  }
+
+  /**
+   * Gets the number of recorded values.
+   *
+   * @return the count
+   */
+  public synchronized long getCount() {
+    return totalCount;
+  }
+
+  /**
+   * Gets the largest recorded value.
+   *
+   * @return the max, or NaN if no value was recorded
+   */
+  public synchronized double getMax() {
+    return max;
+  }
+
+  /**
+   * Gets the mean of the recorded values.
+   *
+   * @return the mean, or NaN if no value was recorded
+   */
+  public synchronized double getMean() {
+    return totalCount > 0 ? sum / totalCount : Double.NaN;
+  }
+
+  /**
+   * Gets the smallest recorded value.
+   *
+   * @return the min, or NaN if no value was recorded
+   */
+  public synchronized double getMin() {
+    return min;
+  }
+
+  /**
+   * Gets the value below which the given percentage of the recorded values fall, within the
+   * precision of the histogram.
+   *
+   * @param percentile the percentile, from 0 to 100
+   * @return the value, or NaN if no value was recorded
+   */
+  public synchronized double getPercentile(double percentile) {
+    if (totalCount == 0) {
+      return Double.NaN;
+    }
+    double clamped = Math.min(Math.max(percentile, 0), 100);
+    long rank = Math.max(1, (long) Math.ceil(clamped / 100 * totalCount));
+    if (rank >= totalCount) {
+      return max;
+    }
+    long seen = 0;
+    for (int index = 0; index < counts.length; index++) {
+      seen += counts[index];
+      if (seen >= rank) {
+        return Math.min(Math.max(valueOf(index), min), max);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Adds the values recorded by another histogram to this one.
+   *
+   * @param other the histogram, of the same precision and resolution
+   * @throws IllegalArgumentException if the histograms do not have the same precision and
+   *     resolution
+   */
+  public void merge(StatsHistogram other) {
+    if (other == this) {
+      throw new IllegalArgumentException("Cannot merge a histogram into itself");
+    }
+    if (other.significantDigits != significantDigits || other.resolution != resolution) {
+      throw new IllegalArgumentException("Cannot merge histograms of different precisions");
+    }
+    long[] otherCounts;
+    long otherTotalCount;
+    double otherMin;
+    double otherMax;
+    double otherSum;
+    synchronized (other) {
+      otherCounts = other.counts.clone();
+      otherTotalCount = other.totalCount;
+      otherMin = other.min;
+      otherMax = other.max;
+      otherSum = other.sum;
+    }
+    if (otherTotalCount == 0) {
+      return;
+    }
+    synchronized (this) {
+      if (otherCounts.length > counts.length) {
+        counts = Arrays.copyOf(counts, otherCounts.length);
+      }
+      for (int index = 0; index < otherCounts.length; index++) {
+        counts[index] += otherCounts[index];
+      }
+      min = totalCount == 0 ? otherMin : Math.min(min, otherMin);
+      max = totalCount == 0 ? otherMax : Math.max(max, otherMax);
+      totalCount += otherTotalCount;
+      sum += otherSum;
+    }
+  }
+
+  /**
+   * Records a value.
+   *
+   * @param value the value. Negative, infinite and NaN values are ignored.
+   */
+  public void record(double value) {
+    record(value, 1);
+  }
+
+  /**
+   * Records a value a number of times.
+   *
+   * @param value the value. Negative, infinite and NaN values are ignored.
+   * @param count the number of times
+   */
+  public synchronized void record(double value, long count) {
+    if (!(value >= 0) || Double.isInfinite(value) || count <= 0) {
+      return;
+    }
+    int index = indexOf(Math.round(value / resolution));
+    if (index >= counts.length) {
+      counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length + subBucketHalfCount));
+    }
+    counts[index] += count;
+    min = totalCount == 0 ? value : Math.min(min, value);
+    max = totalCount == 0 ? value : Math.max(max, value);
+    totalCount += count;
+    sum += value * count;
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the stats of a sample to {@link RTCStreamStats}, one per sent or received audio or video
+ * stream, whether they are legacy stats, as read by {@link SinglePCStatsArray}, or standard stats,
+ * as collected by {@link io.cosmosoftware.kite.steps.StartGetStatsStep}.
+ * <p>
+ * A legacy stream is an ssrc_*_send or ssrc_*_recv stat with a media type, a track id that is not
+ * a fake unified plan track, and a codec name. A standard stream is an inbound-rtp or outbound-rtp
+ * stat, its round trip time being taken from the remote-inbound-rtp stat referring to it and its
+ * codec from its codec stat, if the sample holds them.
+ */
+public class StatsNormalizer {
+
+  private static double number(Object value) {
+    if (value instanceof JsonNumber) {
+      return ((JsonNumber) value).doubleValue();
+    }
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    String string = value instanceof JsonString ? ((JsonString) value).getString()
+        : value instanceof String ? (String) value : null;
+    if (string == null || string.isEmpty()) {
+      return Double.NaN;
+    }
+    try {
+      return Double.parseDouble(string);
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  private static String string(Object value) {
+    return value instanceof JsonString ? ((JsonString) value).getString()
+        : value == null || value == JsonValue.NULL ? null : value.toString();
+  }
+
+  /**
+   * Normalizes a sample, either in the <tt>{"localStats": {...}}</tt> form of the samples of
+   * {@link SinglePCStatsArray} or as the stats themselves, keyed by stat id.
+   *
+   * @param sample the sample
+   * @return the streams of the sample
+   */
+  public static List<RTCStreamStats> normalize(JsonObject sample) {
+    JsonObject stats = sample.containsKey("localStats") ? sample.getJsonObject("localStats")
+        : sample;
+    Map<String, Map<String, ?>> statsById = new LinkedHashMap<>();
+    for (Map.Entry<String, JsonValue> stat : stats.entrySet()) {
+      if (stat.getValue() instanceof JsonObject) {
+        statsById.put(stat.getKey(), (JsonObject) stat.getValue());
+      }
+    }
+    return normalize(statsById);
+  }
+
+  /**
+   * Normalizes a sample given as the array of stats returned by the web driver for getStats(),
+   * each stat being a map holding its id.
+   *
+   * @param statArray the list of stats
+   * @return the streams of the sample
+   */
+  public static List<RTCStreamStats> normalize(List<?> statArray) {
+    Map<String, Map<String, ?>> statsById = new LinkedHashMap<>();
+    for (Object item : statArray) {
+      if (item instanceof Map) {
+        Map<String, Object> stat = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> field : ((Map<?, ?>) item).entrySet()) {
+          stat.put(String.valueOf(field.getKey()), field.getValue());
+        }
+        statsById.put(String.valueOf(stat.get("id")), stat);
+      }
+    }
+    return normalize(statsById);
+  }
+
+  /**
+   * Normalizes a sample given as the values of the stats, keyed by stat id then field name.
+   *
+   * @param statsById the stats
+   * @return the streams of the sample
+   */
+  public static List<RTCStreamStats> normalize(Map<String, ? extends Map<String, ?>> statsById) {
+    Map<String, Map<String, ?>> remoteInbound = new HashMap<>();
+    for (Map<String, ?> stat : statsById.values()) {
+      if ("remote-inbound-rtp".equals(string(stat.get("type")))) {
+        remoteInbound.put(string(stat.get("localId")), stat);
+      }
+    }
+    List<RTCStreamStats> streams = new ArrayList<>();
+    for (Map.Entry<String, ? extends Map<String, ?>> stat : statsById.entrySet()) {
+      String type = string(stat.getValue().get("type"));
+      RTCStreamStats stream = "inbound-rtp".equals(type) || "outbound-rtp".equals(type)
+          ? normalizeStandard(stat.getKey(), stat.getValue(), type, statsById, remoteInbound)
+          : normalizeLegacy(stat.getKey(), stat.getValue());
+      if (stream != null) {
+        streams.add(stream);
+      }
+    }
+    return streams;
+  }
+
+  private static RTCStreamStats normalizeLegacy(String id, Map<String, ?> stat) {
+    boolean sent = id.contains("_send");
+    String kind = string(stat.get("mediaType"));
+    String trackId = string(stat.get("googTrackId"));
+    String codec = string(stat.get("googCodecName"));
+    if (!id.contains("ssrc_") || (!sent && !id.contains("_recv")) || kind == null
+        || trackId == null || trackId.contains("fake-unified-plan") || codec == null
+        || codec.isEmpty()) {
+      return null;
+    }
+    RTCStreamStats stream = new RTCStreamStats();
+    stream.id = id;
+    stream.kind = kind;
+    stream.sent = sent;
+    stream.trackId = trackId;
+    stream.codec = codec;
+    stream.timestamp = number(stat.get("timestamp"));
+    stream.bytes = number(stat.get(sent ? "bytesSent" : "bytesReceived"));
+    stream.packets = number(stat.get(sent ? "packetsSent" : "packetsReceived"));
+    stream.packetsLost = number(stat.get("packetsLost"));
+    stream.jitter = number(stat.get("googJitterReceived"));
+    stream.roundTripTime = number(stat.get("googRtt"));
+    stream.frameRate = number(stat.get(sent ? "googFrameRateSent" : "googFrameRateReceived"));
+    stream.framesDecoded = number(stat.get("framesDecoded"));
+    return stream;
+  }
+
+  private static RTCStreamStats normalizeStandard(String id, Map<String, ?> stat, String type,
+      Map<String, ? extends Map<String, ?>> statsById, Map<String, Map<String, ?>> remoteInbound) {
+    if (Boolean.TRUE.toString().equals(string(stat.get("isRemote")))) {
+      return null;
+    }
+    boolean sent = "outbound-rtp".equals(type);
+    RTCStreamStats stream = new RTCStreamStats();
+    stream.id = id;
+    stream.kind = string(stat.get("kind"));
+    if (stream.kind == null) {
+      stream.kind = string(stat.get("mediaType"));
+    }
+    if (stream.kind == null) {
+      return null;
+    }
+    stream.sent = sent;
+    stream.trackId = string(stat.get("trackIdentifier"));
+    if (stream.trackId == null) {
+      stream.trackId = string(stat.get("trackId"));
+    }
+    String codecId = string(stat.get("codecId"));
+    Map<String, ?> codec = codecId != null ? statsById.get(codecId) : null;
+    stream.codec = codec != null && codec.get("mimeType") != null
+        ? string(codec.get("mimeType")) : codecId;
+    stream.timestamp = number(stat.get("timestamp"));
+    stream.bytes = number(stat.get(sent ? "bytesSent" : "bytesReceived"));
+    stream.packets = number(stat.get(sent ? "packetsSent" : "packetsReceived"));
+    stream.jitter = number(stat.get("jitter")) * 1000;
+    Map<String, ?> remote = remoteInbound.get(id);
+    if (remote != null) {
+      stream.roundTripTime = number(remote.get("roundTripTime")) * 1000;
+      if (sent) {
+        stream.packetsLost = number(remote.get("packetsLost"));
+      }
+    }
+    if (!sent) {
+      stream.packetsLost = number(stat.get("packetsLost"));
+    }
+    stream.frameRate = number(stat.get("framesPerSecond"));
+    stream.framesDecoded = number(stat.get("framesDecoded"));
+    stream.framesDropped = number(stat.get("framesDropped"));
+    stream.freezeCount = number(stat.get("freezeCount"));
+    stream.totalFreezesDuration = number(stat.get("totalFreezesDuration")) * 1000;
+    return stream;
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.cosmosoftware.kite.report.KiteLogger;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonStructure;
+import javax.json.JsonValue;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An embedded HTTP receiver the browsers can post their stats to, instead of the stats being
+ * polled through WebDriver.
+ * <p>
+ * It accepts the requests of the getStats SDK (see
+ * {@link io.cosmosoftware.kite.action.JSActionScript#getStatsSdkString}), so that it can stand in
+ * for logstash, as well as batches: a POST body is either a JSON object, a JSON array of objects,
+ * or one JSON object per line. Each object is
+ * <tt>{"userId": ..., "roomId": ..., "testName": ..., "stats": {id: stat, ...}}</tt>, the stats
+ * being taken from the object itself if it has no "stats" key.
+ * <p>
+ * The stats of each user id are added to a {@link ColumnarPCStats}, and each object is also
+ * written as it arrives to an optional {@link StatsSink}.
+ * <p>
+ * The receiver listens on the loopback address by default, which the browsers also accept from
+ * pages served over https. When the browsers run on remote nodes, it must listen on an address
+ * they can reach.
+ */
+public class StatsReceiver implements Closeable {
+
+  private static final KiteLogger logger = KiteLogger.getLogger(StatsReceiver.class.getName());
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final StatsSink sink;
+  private final Map<String, ColumnarPCStats> stats = new ConcurrentHashMap<>();
+  private final Map<String, Integer> clientIndexes = new ConcurrentHashMap<>();
+  private final AtomicInteger clientCount = new AtomicInteger();
+  private final LongAdder received = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  /**
+   * Instantiates a new Stats receiver listening on the loopback address.
+   *
+   * @param port the port, or 0 for any free port
+   * @throws IOException if the port cannot be bound
+   */
+  public StatsReceiver(int port) throws IOException {
+    this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), null);
+  }
+
+  /**
+   * Instantiates a new Stats receiver.
+   *
+   * @param address the address to listen on
+   * @param sink the sink the received stats are written to, or null. It is not closed by the
+   *     receiver.
+   * @throws IOException if the address cannot be bound
+   */
+  public StatsReceiver(InetSocketAddress address, StatsSink sink) throws IOException {
+    this.sink = sink;
+    this.server = HttpServer.create(address, 0);
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(2, runnable -> {
+      Thread thread = new Thread(runnable, "StatsReceiver-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.server.setExecutor(executor);
+    this.server.createContext("/", this::handle);
+    this.server.start();
+    logger.info("Receiving stats at " + getUrl());
+  }
+
+  private static byte[] readBody(InputStream in) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      body.write(buffer, 0, read);
+    }
+    return body.toByteArray();
+  }
+
+  private static void respond(HttpExchange exchange, int code, String text) throws IOException {
+    byte[] body = text.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+    exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
+    exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
+    if (body.length == 0) {
+      exchange.sendResponseHeaders(code, -1);
+    } else {
+      exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+      exchange.sendResponseHeaders(code, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+
+  /**
+   * Parses a request body into the objects it holds.
+   *
+   * @param body the body
+   * @return the objects
+   */
+  static List<JsonObject> parse(String body) {
+    List<JsonObject> objects = new ArrayList<>();
+    List<String> lines = new ArrayList<>();
+    for (String line : body.split("\n")) {
+      line = line.trim();
+      if (!line.isEmpty()) {
+        lines.add(line);
+      }
+    }
+    boolean ndjson = lines.size() > 1;
+    for (String line : lines) {
+      ndjson &= line.startsWith("{") && line.endsWith("}");
+    }
+    for (String json : ndjson ? lines : Collections.singletonList(body)) {
+      try (JsonReader reader = Json.createReader(new StringReader(json))) {
+        add(objects, reader.read());
+      }
+    }
+    return objects;
+  }
+
+  private static void add(List<JsonObject> objects, JsonStructure structure) {
+    if (structure instanceof JsonArray) {
+      for (JsonValue value : (JsonArray) structure) {
+        if (value instanceof JsonObject) {
+          objects.add((JsonObject) value);
+        }
+      }
+    } else {
+      objects.add((JsonObject) structure);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  /**
+   * Gets the user ids stats were received for.
+   *
+   * @return the user ids
+   */
+  public Set<String> getClients() {
+    return new TreeSet<>(stats.keySet());
+  }
+
+  /**
+   * Gets the port the receiver listens on.
+   *
+   * @return the port
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Gets the number of stats objects received.
+   *
+   * @return the number of stats objects
+   */
+  public long getReceivedCount() {
+    return received.sum();
+  }
+
+  /**
+   * Gets the number of requests rejected because their body could not be parsed, or their stats
+   * could not be written to the sink.
+   *
+   * @return the number of requests
+   */
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  /**
+   * Gets the stats received for a user id.
+   *
+   * @param userId the user id, or "" for the stats posted without one
+   * @return the stats, or null if none were received
+   */
+  public ColumnarPCStats getStats(String userId) {
+    return stats.get(userId);
+  }
+
+  /**
+   * Gets the URL the stats must be posted to.
+   *
+   * @return the url
+   */
+  public String getUrl() {
+    InetSocketAddress address = server.getAddress();
+    String host = address.getAddress().isAnyLocalAddress() ? "localhost"
+        : address.getAddress().getHostAddress();
+    return "http://" + (host.contains(":") ? "[" + host + "]" : host) + ":" + getPort() + "/";
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      String method = exchange.getRequestMethod();
+      if ("OPTIONS".equals(method)) {
+        respond(exchange, 204, "");
+        return;
+      }
+      if (!"POST".equals(method) && !"PUT".equals(method)) {
+        respond(exchange, 405, "Method not allowed");
+        return;
+      }
+      List<JsonObject> objects;
+      try {
+        objects = parse(new String(readBody(exchange.getRequestBody()), StandardCharsets.UTF_8));
+      } catch (RuntimeException e) {
+        rejected.increment();
+        logger.warn("Rejected stats from " + exchange.getRemoteAddress() + ": " + e.getMessage());
+        respond(exchange, 400, "Invalid JSON");
+        return;
+      }
+      try {
+        for (JsonObject object : objects) {
+          receive(object);
+        }
+      } catch (IOException e) {
+        rejected.increment();
+        logger.error("Unable to write the stats from " + exchange.getRemoteAddress() + ": "
+            + e.getMessage());
+        respond(exchange, 500, "Unable to write the stats");
+        return;
+      }
+      respond(exchange, 200, "ok");
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void receive(JsonObject object) throws IOException {
+    JsonValue id = object.get("userId");
+    String userId = id == null ? "" : id instanceof JsonString ? ((JsonString) id).getString()
+        : id.toString();
+    JsonObject sample = object.get("stats") instanceof JsonObject
+        ? object.getJsonObject("stats") : object;
+    stats.computeIfAbsent(userId, key -> new ColumnarPCStats()).add(sample);
+    if (sink != null) {
+      int index = clientIndexes.computeIfAbsent(userId, key -> clientCount.getAndIncrement());
+      sink.write(index, object);
+    }
+    received.increment();
+  }
+}
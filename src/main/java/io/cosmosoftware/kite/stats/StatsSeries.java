@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import java.util.Arrays;
+
+/**
+ * The values of one stat id over time, one row per sample in which the stat appeared.
+ * <p>
+ * Numeric fields are kept in a {@link StatsColumn} per field. Only the latest raw value of each
+ * field is kept, and only converted to a string when it is read, which is enough for the static
+ * fields such as ids, codec names and media types.
+ */
+final class StatsSeries {
+
+  private static final StatsDictionary FIELDS = StatsDictionary.FIELDS;
+  private static final int ID = FIELDS.intern("id");
+  private static final int MEDIA_TYPE = FIELDS.intern("mediaType");
+  private static final int TRACK_ID = FIELDS.intern("googTrackId");
+  private static final int CODEC_NAME = FIELDS.intern("googCodecName");
+
+  private final String id;
+  private final boolean ssrcSend;
+  private final boolean ssrcRecv;
+  private StatsColumn[] columns = new StatsColumn[0];
+  private Object[] lastValues = new Object[0];
+  private int[] lastRows = new int[0];
+  private int rows;
+  private int lastSample = -1;
+  private int firstAVRow = -1;
+  private String avMediaType;
+
+  /**
+   * Instantiates a new Stats series.
+   *
+   * @param id the stat id
+   */
+  StatsSeries(String id) {
+    this.id = id;
+    this.ssrcSend = id.contains("ssrc_") && id.contains("_send");
+    this.ssrcRecv = id.contains("ssrc_") && id.contains("_recv");
+  }
+
+  private static double parse(String value) {
+    int length = value.length();
+    if (length == 0 || length > 18) {
+      return parseDouble(value);
+    }
+    long result = 0;
+    int i = value.charAt(0) == '-' ? 1 : 0;
+    if (i == length) {
+      return Double.NaN;
+    }
+    for (; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return parseDouble(value);
+      }
+      result = result * 10 + (c - '0');
+    }
+    return value.charAt(0) == '-' ? -result : result;
+  }
+
+  private static double parseDouble(String value) {
+    char first = value.isEmpty() ? 'x' : value.charAt(0);
+    if ((first < '0' || first > '9') && first != '-' && first != '.') {
+      return Double.NaN;
+    }
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * Starts a new row, for the given sample of the store.
+   *
+   * @param sample the index of the sample in the store
+   * @return the row
+   */
+  int beginRow(int sample) {
+    lastSample = sample;
+    return rows++;
+  }
+
+  /**
+   * Ends the current row, and classifies the stat as sent or received audio or video according to
+   * the values of this row.
+   */
+  void endRow() {
+    int row = rows - 1;
+    String mediaType = getLastValue(MEDIA_TYPE);
+    String trackId = getLastValue(TRACK_ID);
+    String codecName = getLastValue(CODEC_NAME);
+    boolean av = (ssrcSend || ssrcRecv) && getLastValue(ID) != null
+        && mediaType != null && trackId != null && codecName != null
+        && !trackId.contains("fake-unified-plan") && !codecName.equals("");
+    avMediaType = av ? mediaType : null;
+    if (av && firstAVRow < 0) {
+      firstAVRow = row;
+    }
+  }
+
+  private void ensureField(int field) {
+    if (field >= columns.length) {
+      int length = Math.max(field + 1, columns.length * 2);
+      columns = Arrays.copyOf(columns, length);
+      lastValues = Arrays.copyOf(lastValues, length);
+      int previous = lastRows.length;
+      lastRows = Arrays.copyOf(lastRows, length);
+      Arrays.fill(lastRows, previous, length, -1);
+    }
+  }
+
+  /**
+   * Gets the value of a field in a row.
+   *
+   * @param field the field id
+   * @param row the row
+   * @return the value, or NaN if the field had no numeric value in this row
+   */
+  double get(int field, int row) {
+    return field < 0 || field >= columns.length || columns[field] == null
+        ? Double.NaN : columns[field].getDouble(row);
+  }
+
+  /**
+   * Gets the row of the first sample in which the stat was sent or received audio or video.
+   *
+   * @return the row, or -1
+   */
+  int getFirstAVRow() {
+    return firstAVRow;
+  }
+
+  String getId() {
+    return id;
+  }
+
+  /**
+   * Gets the latest raw value of a field, if the field was present in the last row.
+   *
+   * @param field the field id
+   * @return the value, or null
+   */
+  String getLastValue(int field) {
+    if (field < 0 || field >= lastRows.length || lastRows[field] != rows - 1) {
+      return null;
+    }
+    Object value = lastValues[field];
+    return value instanceof String ? (String) value : String.valueOf(value);
+  }
+
+  /**
+   * Gets the index in the store of the last sample in which the stat appeared.
+   *
+   * @return the sample index
+   */
+  int getLastSample() {
+    return lastSample;
+  }
+
+  int getRows() {
+    return rows;
+  }
+
+  /**
+   * Checks whether the stat was received audio or video of the given media type in the last row.
+   *
+   * @param mediaType the media type
+   * @return true if it was
+   */
+  boolean isRecvAV(String mediaType) {
+    return ssrcRecv && mediaType.equals(avMediaType);
+  }
+
+  /**
+   * Checks whether the stat was sent audio or video of the given media type in the last row.
+   *
+   * @param mediaType the media type
+   * @return true if it was
+   */
+  boolean isSendAV(String mediaType) {
+    return ssrcSend && mediaType.equals(avMediaType);
+  }
+
+  /**
+   * Sets the value of a field in the current row.
+   *
+   * @param field the field id
+   * @param value the raw value
+   */
+  void put(int field, String value) {
+    ensureField(field);
+    int row = rows - 1;
+    lastValues[field] = value;
+    lastRows[field] = row;
+    double number = parse(value);
+    if (!Double.isNaN(number)) {
+      column(field).set(row, number);
+    }
+  }
+
+  /**
+   * Sets the value of a field in the current row, as returned by the web driver: numbers are
+   * stored as they are, without being formatted and parsed again, and strings are parsed.
+   *
+   * @param field the field id
+   * @param value the value
+   */
+  void put(int field, Object value) {
+    if (value instanceof String) {
+      put(field, (String) value);
+      return;
+    }
+    ensureField(field);
+    int row = rows - 1;
+    lastValues[field] = value;
+    lastRows[field] = row;
+    if (value instanceof Long || value instanceof Integer || value instanceof Short
+        || value instanceof Byte) {
+      column(field).set(row, ((Number) value).longValue());
+    } else if (value instanceof Number) {
+      double number = ((Number) value).doubleValue();
+      if (!Double.isNaN(number)) {
+        column(field).set(row, number);
+      }
+    }
+  }
+
+  private StatsColumn column(int field) {
+    if (columns[field] == null) {
+      columns[field] = new StatsColumn(rows);
+    }
+    return columns[field];
+  }
+}
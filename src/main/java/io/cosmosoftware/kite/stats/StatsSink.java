@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes the stats samples collected over time to a file as they arrive, so that the whole run
+ * never has to be held in memory.
+ */
+public interface StatsSink extends Closeable {
+
+  /**
+   * Gets the file the samples are written to.
+   *
+   * @return the file
+   */
+  File getFile();
+
+  /**
+   * Gets the number of samples written.
+   *
+   * @return the number of samples
+   */
+  long getSampleCount();
+
+  /**
+   * Writes a sample.
+   *
+   * @param pc the index of the peer connection
+   * @param sample the sample, as returned by the web driver (lists, maps and primitives) or as
+   *     org.json or javax.json objects
+   * @throws IOException if the sample cannot be written
+   */
+  void write(int pc, Object sample) throws IOException;
+}
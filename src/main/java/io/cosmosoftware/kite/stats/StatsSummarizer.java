@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import io.cosmosoftware.kite.interfaces.JsonBuilder;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summarizes the RTT, jitter, packet loss and frame rate of a call as distributions, fed with one
+ * sample at a time, in memory that does not grow with the length of the call.
+ * <p>
+ * The samples are normalized by {@link StatsNormalizer}, and each audio or video stream contributes
+ * the values it holds:
+ * <ul>
+ * <li>{@link #RTT}, in ms</li>
+ * <li>{@link #JITTER}, in ms</li>
+ * <li>{@link #PACKET_LOSS}, in %: the packets lost since the previous sample, out of the packets
+ * lost, sent or received since the previous sample</li>
+ * <li>{@link #FRAME_RATE}, in frames per second</li>
+ * </ul>
+ * The summaries of several peer connections or clients can be merged into one.
+ */
+public class StatsSummarizer implements JsonBuilder {
+
+  /**
+   * The round trip time, in ms.
+   */
+  public static final String RTT = "rtt";
+  /**
+   * The jitter, in ms.
+   */
+  public static final String JITTER = "jitter";
+  /**
+   * The packet loss, in %.
+   */
+  public static final String PACKET_LOSS = "packetLoss";
+  /**
+   * The frame rate, in frames per second.
+   */
+  public static final String FRAME_RATE = "frameRate";
+
+  private static final int SIGNIFICANT_DIGITS = 3;
+  private static final double RESOLUTION = 0.01;
+
+  private final Map<String, StatsHistogram> histograms = new LinkedHashMap<>();
+  private final Map<String, long[]> lastPacketCounts = new HashMap<>();
+
+  /**
+   * Instantiates a new Stats summarizer.
+   */
+  public StatsSummarizer() {
+    for (String metric : new String[]{RTT, JITTER, PACKET_LOSS, FRAME_RATE}) {
+      histograms.put(metric, new StatsHistogram(SIGNIFICANT_DIGITS, RESOLUTION));
+    }
+  }
+
+  /**
+   * Adds a sample, either in the <tt>{"localStats": {...}}</tt> form of the samples of
+   * {@link SinglePCStatsArray} or as the stats themselves, keyed by stat id.
+   *
+   * @param sample the sample
+   */
+  public void add(JsonObject sample) {
+    addStreams(StatsNormalizer.normalize(sample));
+  }
+
+  /**
+   * Adds the streams of a sample.
+   *
+   * @param streams the streams
+   */
+  public synchronized void addStreams(List<RTCStreamStats> streams) {
+    for (RTCStreamStats stream : streams) {
+      histograms.get(RTT).record(stream.getRoundTripTime());
+      histograms.get(JITTER).record(stream.getJitter());
+      histograms.get(FRAME_RATE).record(stream.getFrameRate());
+      double packetsLost = stream.getPacketsLost();
+      double packets = stream.getPackets();
+      if (!Double.isNaN(packetsLost + packets)) {
+        long[] last = lastPacketCounts.get(stream.getId());
+        long lost = (long) packetsLost - (last != null ? last[0] : 0);
+        long count = (long) packets - (last != null ? last[1] : 0);
+        lastPacketCounts.put(stream.getId(), new long[]{(long) packetsLost, (long) packets});
+        if (count + lost > 0) {
+          histograms.get(PACKET_LOSS).record(100.0 * Math.max(lost, 0) / (count + lost));
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds a sample given as the array of stats returned by the web driver for getStats().
+   *
+   * @param statArray the list of stats
+   */
+  public void addStatArray(List<?> statArray) {
+    addStreams(StatsNormalizer.normalize(statArray));
+  }
+
+  @Override
+  public JsonObjectBuilder buildJsonObjectBuilder() {
+    JsonObjectBuilder builder = Json.createObjectBuilder();
+    for (Map.Entry<String, StatsHistogram> histogram : getHistograms().entrySet()) {
+      builder.add(histogram.getKey(), histogram.getValue().buildJsonObjectBuilder());
+    }
+    return builder;
+  }
+
+  /**
+   * Gets the histogram of a metric.
+   *
+   * @param metric the metric, {@link #RTT}, {@link #JITTER}, {@link #PACKET_LOSS} or
+   *     {@link #FRAME_RATE}
+   * @return the histogram, or null for an unknown metric
+   */
+  public StatsHistogram getHistogram(String metric) {
+    return histograms.get(metric);
+  }
+
+  /**
+   * Gets the histograms, by metric.
+   *
+   * @return the histograms
+   */
+  public Map<String, StatsHistogram> getHistograms() {
+    return Collections.unmodifiableMap(histograms);
+  }
+
+  /**
+   * Adds the values summarized by another summarizer, such as the one of another client, to this
+   * one.
+   *
+   * @param other the summarizer
+   */
+  public void merge(StatsSummarizer other) {
+    for (Map.Entry<String, StatsHistogram> histogram : histograms.entrySet()) {
+      histogram.getValue().merge(other.histograms.get(histogram.getKey()));
+    }
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import io.cosmosoftware.kite.entities.VideoQuality;
+import org.openqa.selenium.WebDriver;
+
+import javax.json.JsonObject;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classifies the received video streams as {@link VideoQuality#VIDEO}, {@link VideoQuality#JERKY},
+ * {@link VideoQuality#FREEZE} or {@link VideoQuality#BLANK} from the decoder counters of the
+ * getStats() samples, instead of sampling the pixels of the video elements.
+ * <p>
+ * Each sample is compared with the previous one of the same stream:
+ * <ul>
+ * <li>BLANK: no frame has been decoded since the stream started</li>
+ * <li>FREEZE: no frame was decoded since the previous sample, or the video was frozen for at least
+ * half of the time</li>
+ * <li>JERKY: a freeze started, the ratio of dropped frames is above the maximum, or the decoded
+ * frame rate is below the minimum</li>
+ * <li>VIDEO: otherwise</li>
+ * </ul>
+ * The counters that the browser does not report (framesDropped, freezeCount and
+ * totalFreezesDuration in the legacy stats) are ignored. As the samples are the ones the stats
+ * collection already gathers, the detection costs nothing in the browser.
+ */
+public class VideoHealthDetector {
+
+  private static final double DEFAULT_MIN_FRAME_RATE = 5;
+  private static final double DEFAULT_MAX_DROP_RATIO = 0.1;
+
+  private final double minFrameRate;
+  private final double maxDropRatio;
+  private final Map<String, RTCStreamStats> previous = new HashMap<>();
+  private final Map<String, VideoQuality> qualities = new LinkedHashMap<>();
+  private final Map<String, Map<VideoQuality, Double>> durations = new HashMap<>();
+
+  /**
+   * Instantiates a new Video health detector, with a minimum frame rate of 5 fps and a maximum
+   * ratio of dropped frames of 10%.
+   */
+  public VideoHealthDetector() {
+    this(DEFAULT_MIN_FRAME_RATE, DEFAULT_MAX_DROP_RATIO);
+  }
+
+  /**
+   * Instantiates a new Video health detector.
+   *
+   * @param minFrameRate the decoded frame rate below which a stream is jerky, in frames per second
+   * @param maxDropRatio the ratio of dropped frames above which a stream is jerky, from 0 to 1
+   */
+  public VideoHealthDetector(double minFrameRate, double maxDropRatio) {
+    this.minFrameRate = minFrameRate;
+    this.maxDropRatio = maxDropRatio;
+  }
+
+  /**
+   * Collects the stats of a web driver periodically and classifies its received video streams, as
+   * {@link io.cosmosoftware.kite.util.TestUtils#videoQualityCheck(WebDriver, Object, int, int)}
+   * does from the pixels of a video element.
+   *
+   * @param webDriver the web driver
+   * @param statsType the stats type, "kite" for the standard stats of pc or "local" for its legacy
+   *     stats
+   * @param interval the interval between two samples, in ms
+   * @param duration the duration of the check, in ms
+   * @return the worst quality of each received video stream over the check, by stream id
+   * @throws InterruptedException if interrupted while waiting for the next sample
+   */
+  public static Map<String, VideoQuality> videoQualityCheck(WebDriver webDriver, String statsType,
+      int interval, int duration) throws InterruptedException {
+    VideoHealthDetector detector = new VideoHealthDetector();
+    Map<String, VideoQuality> worst = new LinkedHashMap<>();
+    detector.update((List<?>) GetStatsUtils.getStatsOnce(statsType, webDriver));
+    for (int elapsed = 0; elapsed < duration; elapsed += interval) {
+      Thread.sleep(interval);
+      Map<String, VideoQuality> qualities =
+          detector.update((List<?>) GetStatsUtils.getStatsOnce(statsType, webDriver));
+      for (Map.Entry<String, VideoQuality> quality : qualities.entrySet()) {
+        worst.merge(quality.getKey(), quality.getValue(),
+            (a, b) -> a.compareTo(b) >= 0 ? a : b);
+      }
+    }
+    return worst;
+  }
+
+  private static double delta(double current, double last) {
+    return Double.isNaN(current) || Double.isNaN(last) ? 0 : current - last;
+  }
+
+  private VideoQuality classify(RTCStreamStats last, RTCStreamStats stream, double elapsed) {
+    double framesDecoded = stream.getFramesDecoded();
+    if (Double.isNaN(framesDecoded)) {
+      double frameRate = stream.getFrameRate();
+      return Double.isNaN(frameRate) || frameRate > 0 ? VideoQuality.VIDEO
+          : VideoQuality.FREEZE;
+    }
+    if (framesDecoded <= 0) {
+      return VideoQuality.BLANK;
+    }
+    if (last == null || elapsed <= 0) {
+      return VideoQuality.VIDEO;
+    }
+    double decoded = delta(framesDecoded, last.getFramesDecoded());
+    double frozen = delta(stream.getTotalFreezesDuration(), last.getTotalFreezesDuration());
+    if (decoded <= 0 || frozen >= elapsed / 2) {
+      return VideoQuality.FREEZE;
+    }
+    double dropped = delta(stream.getFramesDropped(), last.getFramesDropped());
+    double freezes = delta(stream.getFreezeCount(), last.getFreezeCount());
+    if (freezes > 0 || dropped > maxDropRatio * (decoded + dropped)
+        || decoded * 1000 / elapsed < minFrameRate) {
+      return VideoQuality.JERKY;
+    }
+    return VideoQuality.VIDEO;
+  }
+
+  /**
+   * Gets the time each received video stream spent in each quality.
+   *
+   * @param streamId the stream id
+   * @return the durations in ms, by quality
+   */
+  public synchronized Map<VideoQuality, Double> getDurations(String streamId) {
+    Map<VideoQuality, Double> streamDurations = new EnumMap<>(VideoQuality.class);
+    if (durations.containsKey(streamId)) {
+      streamDurations.putAll(durations.get(streamId));
+    }
+    return streamDurations;
+  }
+
+  /**
+   * Gets the current quality of each received video stream.
+   *
+   * @return the qualities, by stream id
+   */
+  public synchronized Map<String, VideoQuality> getQualities() {
+    return new LinkedHashMap<>(qualities);
+  }
+
+  /**
+   * Gets the current quality of a received video stream.
+   *
+   * @param streamId the stream id
+   * @return the quality, or null if the stream was not seen
+   */
+  public synchronized VideoQuality getQuality(String streamId) {
+    return qualities.get(streamId);
+  }
+
+  /**
+   * Updates the qualities with a sample, either in the <tt>{"localStats": {...}}</tt> form of the
+   * samples of {@link SinglePCStatsArray} or as the stats themselves, keyed by stat id.
+   *
+   * @param sample the sample
+   * @return the quality of each received video stream of the sample, by stream id
+   */
+  public Map<String, VideoQuality> update(JsonObject sample) {
+    return updateStreams(StatsNormalizer.normalize(sample));
+  }
+
+  /**
+   * Updates the qualities with a sample given as the array of stats returned by the web driver for
+   * getStats().
+   *
+   * @param statArray the list of stats
+   * @return the quality of each received video stream of the sample, by stream id
+   */
+  public Map<String, VideoQuality> update(List<?> statArray) {
+    return updateStreams(StatsNormalizer.normalize(statArray));
+  }
+
+  /**
+   * Updates the qualities with the streams of a sample.
+   *
+   * @param streams the streams
+   * @return the quality of each received video stream of the sample, by stream id
+   */
+  public synchronized Map<String, VideoQuality> updateStreams(List<RTCStreamStats> streams) {
+    Map<String, VideoQuality> sampleQualities = new LinkedHashMap<>();
+    for (RTCStreamStats stream : streams) {
+      if (stream.isSent() || !PCStats.VIDEO.equals(stream.getKind())) {
+        continue;
+      }
+      RTCStreamStats last = previous.get(stream.getId());
+      if (last != null && stream.getFramesDecoded() < last.getFramesDecoded()) {
+        last = null;
+      }
+      double elapsed = last == null ? 0 : delta(stream.getTimestamp(), last.getTimestamp());
+      VideoQuality quality = classify(last, stream, elapsed);
+      if (elapsed > 0) {
+        durations.computeIfAbsent(stream.getId(), key -> new EnumMap<>(VideoQuality.class))
+            .merge(quality, elapsed, Double::sum);
+      }
+      previous.put(stream.getId(), stream);
+      qualities.put(stream.getId(), quality);
+      sampleQualities.put(stream.getId(), quality);
+    }
+    return sampleQualities;
+  }
+}
@@ -143,7 +143,8 @@ public class GenerateChartsStep extends TestStep {
   }
 
   public String getConfigsScript() {
-    return "window.stats = window.getStatsObject(window.StatsOvertime);"
+    return "window.stats = window.getStatsObject("
+      +  "window.getStatsOvertime ? window.getStatsOvertime() : window.StatsOvertime);"
       +  "window.configs = window.getChartsConfigs(window.stats, window.charts);"
       +  "return window.configs;";
   }
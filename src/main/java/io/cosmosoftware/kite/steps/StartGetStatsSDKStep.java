@@ -6,6 +6,7 @@ import static io.cosmosoftware.kite.util.TestUtils.waitAround;
 
 import io.cosmosoftware.kite.exception.KiteTestException;
 import io.cosmosoftware.kite.interfaces.Runner;
+import io.cosmosoftware.kite.stats.StatsReceiver;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -25,6 +26,7 @@ public class StartGetStatsSDKStep extends TestStep {
   private String customizedUserId;
   private String roomNameCommand;
   private List<String> pcList = new ArrayList<>();
+  private StatsReceiver statsReceiver;
 
   public StartGetStatsSDKStep(Runner runner, String testName, JsonObject getStatsSdk, JsonObject getStatsConfig) {
     super(runner);
@@ -42,7 +44,8 @@ public class StartGetStatsSDKStep extends TestStep {
 
     this.testId =  getStatsSdk.getString("testId", testName + "_"
         + new SimpleDateFormat("yyyyMMdd_hhmmss").format(new Date()) ) ;
-    this.logstashUrl = getStatsSdk.getString("logstashUrl");
+    this.logstashUrl = statsReceiver != null ? statsReceiver.getUrl()
+        : getStatsSdk.getString("logstashUrl");
     this.statsPublishingInterval = getStatsSdk.getInt("statsPublishingInterval", 30000);
     this.userNameCommand = getStatsSdk.getString("userNameCommand", null);
     this.roomNameCommand = getStatsSdk.getString("roomNameCommand", "\"unknown-room\"");
@@ -95,4 +98,13 @@ public class StartGetStatsSDKStep extends TestStep {
   public void setCustomizedUserId(String customizedUserId) {
     this.customizedUserId = customizedUserId;
   }
+
+  /**
+   * Sets the receiver the stats are published to, instead of the logstashUrl of the config.
+   *
+   * @param statsReceiver the stats receiver
+   */
+  public void setStatsReceiver(StatsReceiver statsReceiver) {
+    this.statsReceiver = statsReceiver;
+  }
 }
\ No newline at end of file
@@ -7,12 +7,18 @@ package io.cosmosoftware.kite.steps;
 import io.cosmosoftware.kite.exception.KiteTestException;
 import io.cosmosoftware.kite.interfaces.Runner;
 import io.cosmosoftware.kite.report.Status;
+import io.cosmosoftware.kite.stats.StatsDeltaDecoder;
+import io.cosmosoftware.kite.stats.StatsFormat;
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 
 import javax.json.JsonArray;
 import javax.json.JsonObject;
+import java.io.File;
 
 import static io.cosmosoftware.kite.util.ReportUtils.getStackTrace;
+import static io.cosmosoftware.kite.util.ReportUtils.timestamp;
 
 public class StartGetStatsStep extends TestStep {
 
@@ -24,13 +30,55 @@ public class StartGetStatsStep extends TestStep {
     MEDIASOUP
   };
 
+  /**
+   * What to do with the samples once the capacity of a bounded collection is reached.
+   */
+  enum Downsampling {
+    /**
+     * Overwrite the oldest sample, keeping the most recent ones at full resolution.
+     */
+    DROP_OLDEST,
+    /**
+     * Merge the samples by pairs, keeping the later of each pair, and halve the sampling rate, so
+     * that the whole test is kept at a decreasing resolution.
+     */
+    DECIMATE
+  }
+
   private final int chartsStatsInterval;
+  private final boolean statsAdaptive;
+  private final int statsMinInterval;
+  private final int statsMaxInterval;
+  private final int statsFastDuration;
+  private final double statsMaxCallsPerSecond;
+  private final int statsCapacity;
+  private final int statsDrainInterval;
+  private final StatsFormat statsFormat;
+  private final boolean statsGzip;
+  private final boolean statsDeltaEncoding;
+  private final Downsampling downsampling;
   private final SFU sfu;
   private final String peerConnectionScript;
 
   public StartGetStatsStep(Runner runner, JsonObject getChartsConfig) {
     super(runner);
     this.chartsStatsInterval = getChartsConfig.getInt("chartsStatsInterval", 1000);
+    this.statsAdaptive = getChartsConfig.getBoolean("statsAdaptive", false);
+    this.statsMinInterval = getChartsConfig.getInt("statsMinInterval",
+        Math.min(250, chartsStatsInterval));
+    this.statsMaxInterval = getChartsConfig.getInt("statsMaxInterval",
+        Math.max(5000, chartsStatsInterval));
+    this.statsFastDuration = getChartsConfig.getInt("statsFastDuration", 5000);
+    this.statsMaxCallsPerSecond = getChartsConfig.containsKey("statsMaxCallsPerSecond")
+        ? getChartsConfig.getJsonNumber("statsMaxCallsPerSecond").doubleValue() : 0;
+    this.statsCapacity = getChartsConfig.getInt("statsCapacity", 0);
+    this.statsDrainInterval = getChartsConfig.getInt("statsDrainInterval", 0);
+    this.statsFormat = StatsFormat.valueOf(
+        getChartsConfig.getString("statsFormat", StatsFormat.JSON.name()).toUpperCase());
+    this.statsGzip = getChartsConfig.getBoolean("statsGzip", false);
+    this.statsDeltaEncoding = getChartsConfig.getBoolean("statsDeltaEncoding", false);
+    this.downsampling = Downsampling.valueOf(getChartsConfig.getString("statsDownsampling",
+        Downsampling.DROP_OLDEST.name()).toUpperCase());
     this.sfu = SFU.valueOf(getChartsConfig.getString("sfu", SFU.DEFAULT.name()));
     this.peerConnectionScript = getPeerConnectionScript(getChartsConfig.getJsonArray("peerConnections"));
     setOptional(true);
@@ -45,8 +93,16 @@ public class StartGetStatsStep extends TestStep {
   public void step() throws KiteTestException {
     try {
       ((JavascriptExecutor) webDriver).executeScript(peerConnectionScript);
-      ((JavascriptExecutor) webDriver)
-          .executeScript(getStartGetStatsDuringTestScript(chartsStatsInterval));
+      ((JavascriptExecutor) webDriver).executeScript(
+          getAdaptiveSamplingScript()
+              + getStartGetStatsDuringTestScript(statsCapacity, downsampling, statsDeltaEncoding));
+      if (statsDrainInterval > 0) {
+        File res = new File(System.getProperty("user.dir") + "/results/charts/");
+        res.mkdirs();
+        StatsDrainer.start(webDriver, logger,
+            statsFormat.newSink(res, timestamp() + "_" + this.getClientID() + "_data", statsGzip),
+            statsDrainInterval, statsDeltaEncoding ? new StatsDeltaDecoder() : null);
+      }
 
     } catch (Exception e) {
       logger.info(getStackTrace(e));
@@ -54,11 +110,257 @@ public class StartGetStatsStep extends TestStep {
     }
   }
 
-  private String getStartGetStatsDuringTestScript(int interval) {
+  /**
+   * Writes the stats collected in the browser so far to the sink, if statsDrainInterval is set and
+   * the interval has elapsed since they were last written. The stats are drained after each step;
+   * a step waiting for a long time can call this from time to time, from the thread running it.
+   *
+   * @param webDriver the web driver
+   */
+  public static void drainStats(WebDriver webDriver) {
+    StatsDrainer.drainIfDue(webDriver);
+  }
+
+  /**
+   * Writes the stats left in the browser to the sink and closes it, if statsDrainInterval is set and
+   * {@link StopGetStatsStep} has not run, for instance because the test failed before it. Called
+   * by {@link io.cosmosoftware.kite.util.WebDriverUtils#closeDrivers(java.util.List)} before the
+   * web driver is quit.
+   *
+   * @param webDriver the web driver
+   */
+  public static void stopDrainingStats(WebDriver webDriver) {
+    StatsDrainer.close(webDriver);
+  }
+
+  /**
+   * Notifies the stats collection of an event, such as a change of network profile, so that with
+   * adaptive sampling the stats are sampled at the minimum interval for a while. The test applying
+   * a network command, with {@link io.cosmosoftware.kite.instrumentation.Scenario#sendCommand} or
+   * {@link io.cosmosoftware.kite.instrumentation.Scenario#cleanUp}, calls this for the web driver
+   * of each client the command affects: the client itself, or all the clients behind a gateway.
+   *
+   * @param webDriver the web driver
+   * @param reason the reason of the event
+   * @return true if the browser was notified, false if the stats collection is not running
+   */
+  public static boolean markStatsEvent(WebDriver webDriver, String reason) {
+    if (!(webDriver instanceof JavascriptExecutor)) {
+      return false;
+    }
+    try {
+      return Boolean.TRUE.equals(((JavascriptExecutor) webDriver).executeScript(
+          "if (!window.markStatsEvent) { return false; }"
+              + "window.markStatsEvent(arguments[0]);"
+              + "return true;", reason));
+    } catch (WebDriverException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Gets the script defining the sampling interval, in window.StatsAdaptive. Without adaptive
+   * sampling, the interval is chartsStatsInterval. With adaptive sampling, the stats are
+   * sampled every statsMinInterval for statsFastDuration after an event, then the interval grows
+   * by half at each sample up to statsMaxInterval. The events are the changes of the ICE and
+   * connection states of the peer connections, the drops of their bitrate below half of its
+   * moving average, which then restarts from the new bitrate, and the calls to
+   * window.markStatsEvent(reason). In both cases, with statsMaxCallsPerSecond, the interval never
+   * goes below the one making that many getStats() calls per second for all the peer connections.
+   *
+   * @return the script
+   */
+  private String getAdaptiveSamplingScript() {
+    return "window.StatsAdaptive = {"
+        + "  enabled: " + statsAdaptive + ","
+        + "  base: " + chartsStatsInterval + ","
+        + "  min: " + statsMinInterval + ","
+        + "  max: " + statsMaxInterval + ","
+        + "  fastDuration: " + statsFastDuration + ","
+        + "  budget: " + statsMaxCallsPerSecond + ","
+        + "  interval: " + chartsStatsInterval + ","
+        + "  fastUntil: 0,"
+        + "  lastRound: 0,"
+        + "  calls: 0,"
+        + "  events: {},"
+        + "  bitrates: [],"
+        + "  wake: null"
+        + "};"
+        + "window.markStatsEvent = function(reason) {"
+        + "  const adaptive = window.StatsAdaptive;"
+        + "  adaptive.events[reason] = (adaptive.events[reason] || 0) + 1;"
+        + "  if (!adaptive.enabled) {"
+        + "    return;"
+        + "  }"
+        + "  adaptive.fastUntil = Date.now() + adaptive.fastDuration;"
+        + "  adaptive.interval = adaptive.min;"
+        + "  if (adaptive.wake) {"
+        + "    adaptive.wake();"
+        + "  }"
+        + "};"
+        + "function minStatsInterval(pcCount) {"
+        + "  const adaptive = window.StatsAdaptive;"
+        + "  return adaptive.budget > 0 ? 1000 * pcCount / adaptive.budget : 0;"
+        + "}"
+        + "function nextStatsInterval(pcCount) {"
+        + "  const adaptive = window.StatsAdaptive;"
+        + "  if (!adaptive.enabled) {"
+        + "    return Math.max(adaptive.base, minStatsInterval(pcCount));"
+        + "  }"
+        + "  if (Date.now() < adaptive.fastUntil) {"
+        + "    adaptive.interval = adaptive.min;"
+        + "  } else {"
+        + "    adaptive.interval = Math.min(adaptive.max, Math.ceil(adaptive.interval * 1.5));"
+        + "  }"
+        + "  return Math.max(adaptive.interval, minStatsInterval(pcCount));"
+        + "}"
+        + "function watchStatsEvents(pc) {"
+        + "  if (window.StatsAdaptive.enabled && pc && pc.addEventListener) {"
+        + "    pc.addEventListener('iceconnectionstatechange', () => window.markStatsEvent('ice'));"
+        + "    pc.addEventListener('connectionstatechange',"
+        + "      () => window.markStatsEvent('connection'));"
+        + "  }"
+        + "}"
+        + "function checkStatsBitrate(idx, stats) {"
+        + "  const adaptive = window.StatsAdaptive;"
+        + "  if (!adaptive.enabled) {"
+        + "    return;"
+        + "  }"
+        + "  let bytes = 0;"
+        + "  let timestamp = 0;"
+        + "  stats.forEach(stat => {"
+        + "    if (stat.type === 'inbound-rtp' || stat.type === 'outbound-rtp') {"
+        + "      bytes += (stat.bytesReceived || 0) + (stat.bytesSent || 0);"
+        + "      timestamp = Math.max(timestamp, stat.timestamp || 0);"
+        + "    }"
+        + "  });"
+        + "  const last = adaptive.bitrates[idx];"
+        + "  adaptive.bitrates[idx] = {bytes: bytes, timestamp: timestamp,"
+        + "    average: last ? last.average : 0};"
+        + "  if (!last || timestamp <= last.timestamp) {"
+        + "    return;"
+        + "  }"
+        + "  const bitrate = (bytes - last.bytes) * 8000 / (timestamp - last.timestamp);"
+        + "  if (last.average > 0 && bitrate < last.average / 2) {"
+        + "    adaptive.bitrates[idx].average = bitrate;"
+        + "    window.markStatsEvent('bitrate');"
+        + "  } else {"
+        + "    adaptive.bitrates[idx].average = last.average > 0"
+        + "      ? 0.8 * last.average + 0.2 * bitrate : bitrate;"
+        + "  }"
+        + "}";
+  }
+
+  /**
+   * Gets the script collecting the stats in window.StatsOvertime, one array of samples per peer
+   * connection. With a capacity, each array holds at most that many samples, the number of samples
+   * dropped or merged is counted in window.StatsDropped and window.StatsMerged, and the samples
+   * must be read in order with window.getStatsOvertime(). window.drainStatsOvertime(acknowledged)
+   * returns the samples in order and moves them to window.StatsPending, where they are kept and
+   * returned again until a call acknowledges them. As the samples are taken out of
+   * window.StatsOvertime, the sampling rate lowered by {@link Downsampling#DECIMATE} is restored. A
+   * call that does not acknowledge them also resets the delta encoding state, so that they are
+   * encoded again from scratch and can be decoded by a new decoder. With delta encoding, the
+   * samples returned by window.drainStatsOvertime(acknowledged) and
+   * window.encodeStatsOvertime(samples) must be decoded with a {@link StatsDeltaDecoder}. The
+   * interval between two samples is given by the script of {@link #getAdaptiveSamplingScript()}.
+   *
+   * @param capacity the maximum number of samples kept per peer connection, 0 for no limit
+   * @param downsampling what to do once the capacity is reached
+   * @param deltaEncoding whether to send only the fields that changed since the previous sample
+   * @return the script
+   */
+  private String getStartGetStatsDuringTestScript(int capacity,
+      Downsampling downsampling, boolean deltaEncoding) {
     return "window.Running = true;"
         + "window.StatsOvertime = [];"
+        + "window.StatsStart = [];"
+        + "window.StatsStride = [];"
+        + "window.StatsFill = [];"
+        + "window.StatsDropped = [];"
+        + "window.StatsMerged = [];"
+        + "window.StatsCapacity = " + capacity + ";"
+        + "window.StatsDownsampling = '" + downsampling.name() + "';"
+        + "window.StatsDeltaEncoding = " + deltaEncoding + ";"
+        + "window.StatsDeltaState = [];"
+        + StatsDeltaDecoder.ENCODER_SCRIPT
+        + "window.encodeStatsOvertime = function(statsOvertime) {"
+        + "  if (!window.StatsDeltaEncoding) {"
+        + "    return statsOvertime;"
+        + "  }"
+        + "  return statsOvertime.map((samples, idx) => {"
+        + "    const previous = window.StatsDeltaState[idx] = window.StatsDeltaState[idx] || {};"
+        + "    return samples.map(sample => window.encodeStatsDelta(previous, sample));"
+        + "  });"
+        + "};"
+        + "window.getStatsOvertime = function() {"
+        + "  return window.StatsOvertime.map((samples, idx) => {"
+        + "    const start = window.StatsStart[idx] || 0;"
+        + "    return start === 0 ? samples : samples.slice(start).concat(samples.slice(0, start));"
+        + "  });"
+        + "};"
+        + "window.StatsPending = [];"
+        + "window.drainStatsOvertime = function(acknowledged) {"
+        + "  const pending = acknowledged ? [] : window.StatsPending;"
+        + "  const chunk = window.StatsOvertime.map((samples, idx) => {"
+        + "    const start = window.StatsStart[idx] || 0;"
+        + "    const taken = samples.slice(start).concat(samples.slice(0, start));"
+        + "    samples.length = 0;"
+        + "    window.StatsStart[idx] = 0;"
+        + "    window.StatsStride[idx] = 1;"
+        + "    window.StatsFill[idx] = 0;"
+        + "    return taken;"
+        + "  });"
+        + "  window.StatsPending = chunk.map((samples, idx) =>"
+        + "    (pending[idx] || []).concat(samples));"
+        + "  if (!acknowledged) {"
+        + "    window.StatsDeltaState = [];"
+        + "  }"
+        + "  return window.encodeStatsOvertime(window.StatsPending);"
+        + "};"
+        + "function storeStats(idx, stats) {"
+        + "  const samples = window.StatsOvertime[idx];"
+        + "  if (window.StatsCapacity <= 0) {"
+        + "    samples.push(stats);"
+        + "  } else if (window.StatsDownsampling === 'DECIMATE') {"
+        + "    if (window.StatsFill[idx] > 0 && window.StatsFill[idx] < window.StatsStride[idx]) {"
+        + "      samples[samples.length - 1] = stats;"
+        + "      window.StatsFill[idx]++;"
+        + "      window.StatsMerged[idx]++;"
+        + "      return;"
+        + "    }"
+        + "    if (samples.length >= window.StatsCapacity) {"
+        + "      let kept = 0;"
+        + "      for (let i = 1; i < samples.length; i += 2) {"
+        + "        samples[kept++] = samples[i];"
+        + "      }"
+        + "      if (samples.length % 2 === 1) {"
+        + "        samples[kept++] = samples[samples.length - 1];"
+        + "      }"
+        + "      window.StatsMerged[idx] += samples.length - kept;"
+        + "      samples.length = kept;"
+        + "      window.StatsStride[idx] *= 2;"
+        + "    }"
+        + "    samples.push(stats);"
+        + "    window.StatsFill[idx] = 1;"
+        + "  } else if (samples.length < window.StatsCapacity) {"
+        + "    samples.push(stats);"
+        + "  } else {"
+        + "    samples[window.StatsStart[idx]] = stats;"
+        + "    window.StatsStart[idx] = (window.StatsStart[idx] + 1) % window.StatsCapacity;"
+        + "    window.StatsDropped[idx]++;"
+        + "  }"
+        + "}"
         + "function waitAround(ms) {"
-        + "  return new Promise(resolve => setTimeout(resolve, ms));"
+        + "  return new Promise(resolve => {"
+        + "    const timeout = setTimeout(resolve, ms);"
+        + "    window.StatsAdaptive.wake = () => {"
+        + "      clearTimeout(timeout);"
+        + "      const earliest = window.StatsAdaptive.lastRound"
+        + "        + minStatsInterval(window.peerConnections.length);"
+        + "      setTimeout(resolve, Math.max(0, earliest - Date.now()));"
+        + "    };"
+        + "  });"
         + "}"
         + "async function gettingStatsDuringTest(pcArray) {"
         + "  if (pcArray.length > 0) {"
@@ -66,6 +368,12 @@ public class StartGetStatsStep extends TestStep {
         + "    for (let idx = 0; idx < pcArray.length; idx++) {"
         + "      if (typeof window.StatsOvertime[idx] === \"undefined\") {"
         + "        window.StatsOvertime[idx] = [];"
+        + "        window.StatsStart[idx] = 0;"
+        + "        window.StatsStride[idx] = 1;"
+        + "        window.StatsFill[idx] = 0;"
+        + "        window.StatsDropped[idx] = 0;"
+        + "        window.StatsMerged[idx] = 0;"
+        + "        watchStatsEvents(pcArray[idx]);"
         + "      }"
         + "      stats = await pcArray[idx].getStats().then(data => {"
         + "        const statsToIgnore = ['codec', 'remote-candidate', 'local-candidate', 'data-channel', 'certificate', 'media-source', 'peer-connection', 'transport'];"
@@ -80,16 +388,18 @@ public class StartGetStatsStep extends TestStep {
         + "        });"
         + "        return statsObj;"
         + "      });"
-        + "      window.StatsOvertime[idx].push(stats);"
+        + "      window.StatsAdaptive.calls++;"
+        + "      checkStatsBitrate(idx, stats);"
+        + "      storeStats(idx, stats);"
         + "    }"
         + "  }"
         + "}"
         + "(async () => {"
         + "while (window.Running) {"
+        + "    window.StatsAdaptive.lastRound = Date.now();"
         + "    let stats = await gettingStatsDuringTest(window.peerConnections);"
-        + "    await waitAround("
-        + interval
-        + ");"
+        + "    await waitAround(nextStatsInterval(window.peerConnections.length));"
+        + "    window.StatsAdaptive.wake = null;"
         + "}"
         + "})();";
   }
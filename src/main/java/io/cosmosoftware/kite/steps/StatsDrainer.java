@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.steps;
+
+import io.cosmosoftware.kite.exception.KiteTestException;
+import io.cosmosoftware.kite.report.KiteLogger;
+import io.cosmosoftware.kite.stats.StatsDeltaDecoder;
+import io.cosmosoftware.kite.stats.StatsSink;
+import org.openqa.selenium.WebDriver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.cosmosoftware.kite.util.ReportUtils.getStackTrace;
+import static io.cosmosoftware.kite.util.TestUtils.executeJsScript;
+
+/**
+ * Fetches the samples collected in the browser by {@link StartGetStatsStep} every interval, and
+ * writes them to a {@link StatsSink}, so that neither the browser nor the final WebDriver response
+ * holds the whole run.
+ * <p>
+ * The samples are drained by the thread running the test steps, between two steps, as the web
+ * driver does not support concurrent commands. The browser keeps the samples it returned until the
+ * next drain acknowledges that they were written, and returns them again otherwise, so that a
+ * failed drain loses nothing. When the writing of a chunk failed part way, the samples already
+ * written are skipped when the chunk is returned again, so that no sample is written twice. With
+ * delta encoding, the samples that are returned again are encoded again from scratch, and
+ * decoded by a new decoder, as the decoder and the browser may no longer agree on the previous
+ * sample after a failure.
+ * <p>
+ * A drainer is registered for a web driver by {@link StartGetStatsStep} and removed either by
+ * {@link StopGetStatsStep}, or, if the test ended before that step, by
+ * {@link StartGetStatsStep#stopDrainingStats(WebDriver)} when the web driver is closed, so that the
+ * web driver is no longer referenced and the sink is closed.
+ */
+final class StatsDrainer {
+
+  private static final Map<WebDriver, StatsDrainer> drainers = new ConcurrentHashMap<>();
+
+  private final WebDriver webDriver;
+  private final KiteLogger logger;
+  private final StatsSink sink;
+  private final int interval;
+  private StatsDeltaDecoder decoder;
+  private long lastDrain = System.currentTimeMillis();
+  private boolean written = false;
+  private int[] writtenCounts = new int[0];
+
+  private StatsDrainer(WebDriver webDriver, KiteLogger logger, StatsSink sink, int interval,
+      StatsDeltaDecoder decoder) {
+    this.webDriver = webDriver;
+    this.logger = logger;
+    this.sink = sink;
+    this.interval = interval;
+    this.decoder = decoder;
+  }
+
+  /**
+   * Drains the stats of a web driver if the draining interval has elapsed since the last drain.
+   * Called between two steps, from the thread running them. A failure is logged, and the samples
+   * are drained again the next time.
+   *
+   * @param webDriver the web driver
+   */
+  static void drainIfDue(WebDriver webDriver) {
+    StatsDrainer drainer = drainers.get(webDriver);
+    if (drainer != null && System.currentTimeMillis() - drainer.lastDrain >= drainer.interval) {
+      drainer.drainQuietly();
+    }
+  }
+
+  /**
+   * Stops draining the stats of a web driver, if they are drained: the samples left in the browser
+   * are written and the sink is closed. A failure is logged.
+   *
+   * @param webDriver the web driver
+   */
+  static void close(WebDriver webDriver) {
+    StatsDrainer drainer = drainers.remove(webDriver);
+    if (drainer != null) {
+      try {
+        drainer.stop();
+      } catch (Exception e) {
+        drainer.logger.warn("Unable to write the remaining stats to " + drainer.sink.getFile()
+            + ": " + getStackTrace(e));
+      }
+    }
+  }
+
+  /**
+   * Removes the drainer of a web driver. The caller must stop the drainer it gets.
+   *
+   * @param webDriver the web driver
+   * @return the drainer, or null if the stats of this web driver are not drained
+   */
+  static StatsDrainer remove(WebDriver webDriver) {
+    return drainers.remove(webDriver);
+  }
+
+  /**
+   * Starts draining the stats of a web driver.
+   *
+   * @param webDriver the web driver
+   * @param logger the logger
+   * @param sink the sink the stats are written to
+   * @param interval the draining interval in ms
+   * @param decoder the decoder of the samples if they are delta encoded, or null
+   */
+  static void start(WebDriver webDriver, KiteLogger logger, StatsSink sink, int interval,
+      StatsDeltaDecoder decoder) {
+    StatsDrainer previous = drainers.put(webDriver,
+        new StatsDrainer(webDriver, logger, sink, interval, decoder));
+    if (previous != null) {
+      try {
+        previous.sink.close();
+      } catch (IOException e) {
+        logger.warn("Unable to close " + previous.sink.getFile() + ": " + e.getLocalizedMessage());
+      }
+    }
+  }
+
+  /**
+   * Fetches the samples collected in the browser and not yet written, acknowledging the ones
+   * written by the previous drain, and writes them to the sink. The samples of a chunk that was
+   * partly written before a failure are all decoded again, to keep the decoder in step with the
+   * browser, but only the ones that were not written yet are written.
+   */
+  private synchronized void drain() throws KiteTestException, IOException {
+    lastDrain = System.currentTimeMillis();
+    boolean acknowledged = written;
+    written = false;
+    if (acknowledged) {
+      writtenCounts = new int[0];
+    } else if (decoder != null) {
+      decoder = new StatsDeltaDecoder();
+    }
+    List<?> chunk = (List<?>) executeJsScript(webDriver, "return window.drainStatsOvertime"
+        + " ? window.drainStatsOvertime(" + acknowledged + ") : [];");
+    if (chunk == null) {
+      written = true;
+      return;
+    }
+    List<List<Object>> samples = new ArrayList<>();
+    for (int pc = 0; pc < chunk.size(); pc++) {
+      List<Object> pcSamples = new ArrayList<>();
+      for (Object sample : (List<?>) chunk.get(pc)) {
+        pcSamples.add(decoder == null ? sample : decoder.decode(pc, sample));
+      }
+      samples.add(pcSamples);
+    }
+    if (writtenCounts.length < samples.size()) {
+      writtenCounts = Arrays.copyOf(writtenCounts, samples.size());
+    }
+    for (int pc = 0; pc < samples.size(); pc++) {
+      List<Object> pcSamples = samples.get(pc);
+      for (int i = writtenCounts[pc]; i < pcSamples.size(); i++) {
+        sink.write(pc, pcSamples.get(i));
+        writtenCounts[pc]++;
+      }
+    }
+    written = true;
+  }
+
+  private void drainQuietly() {
+    try {
+      drain();
+    } catch (Exception e) {
+      logger.warn("Unable to drain stats, will retry: " + getStackTrace(e));
+    }
+  }
+
+  /**
+   * Drains the remaining samples and closes the sink. Must be called after the collection has been
+   * stopped in the browser.
+   *
+   * @return the sink
+   */
+  synchronized StatsSink stop() throws KiteTestException, IOException {
+    try {
+      drain();
+    } finally {
+      sink.close();
+    }
+    return sink;
+  }
+}
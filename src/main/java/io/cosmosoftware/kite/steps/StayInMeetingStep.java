@@ -26,6 +26,7 @@ public class StayInMeetingStep extends TestStep {
     for (int waitTime = 0; waitTime < meetingDuration; waitTime++) {
       waitAround(ONE_SECOND_INTERVAL);
       poke(this.webDriver);
+      StatsDrainer.drainIfDue(this.webDriver);
     }
   }
 
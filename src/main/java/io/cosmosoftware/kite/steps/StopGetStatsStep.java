@@ -7,11 +7,17 @@ package io.cosmosoftware.kite.steps;
 import io.cosmosoftware.kite.exception.KiteTestException;
 import io.cosmosoftware.kite.interfaces.Runner;
 import io.cosmosoftware.kite.report.Status;
+import io.cosmosoftware.kite.stats.StatsDeltaDecoder;
+import io.cosmosoftware.kite.stats.StatsFormat;
+import io.cosmosoftware.kite.stats.StatsSink;
 import org.json.JSONArray;
+import org.json.JSONObject;
 
+import javax.json.JsonObject;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -21,8 +27,32 @@ import static io.cosmosoftware.kite.util.TestUtils.executeJsScript;
 
 public class StopGetStatsStep extends TestStep {
 
+  private final StatsFormat statsFormat;
+  private final boolean statsGzip;
+  private final boolean statsDeltaEncoding;
+
   public StopGetStatsStep(Runner runner) {
     super(runner);
+    this.statsFormat = StatsFormat.JSON;
+    this.statsGzip = false;
+    this.statsDeltaEncoding = false;
+    setOptional(true);
+  }
+
+  /**
+   * Instantiates a new Stop get stats step, writing the stats in the format given by the
+   * statsFormat and statsGzip keys of the charts config, and fetching them in delta encoding if
+   * statsDeltaEncoding is set.
+   *
+   * @param runner the runner
+   * @param getChartsConfig the charts config
+   */
+  public StopGetStatsStep(Runner runner, JsonObject getChartsConfig) {
+    super(runner);
+    this.statsFormat = StatsFormat.valueOf(
+        getChartsConfig.getString("statsFormat", StatsFormat.JSON.name()).toUpperCase());
+    this.statsGzip = getChartsConfig.getBoolean("statsGzip", false);
+    this.statsDeltaEncoding = getChartsConfig.getBoolean("statsDeltaEncoding", false);
     setOptional(true);
   }
 
@@ -32,13 +62,43 @@ public class StopGetStatsStep extends TestStep {
   @Override
   public void step() throws KiteTestException {
     try {
-      List<Map<String, Object>> statsOvertime = (List) executeJsScript(webDriver, getStopGetStatsDuringTestScript());
-      JSONArray jsonArray = new JSONArray(statsOvertime);
+      StatsDrainer drainer = StatsDrainer.remove(webDriver);
+      if (drainer != null) {
+        executeJsScript(webDriver, "window.Running = false;");
+        reportDownsampling();
+        reportAdaptiveSampling();
+        reportSink(drainer.stop());
+        logger.debug("Stopped");
+        return;
+      }
+      List<?> statsOvertime = (List<?>) executeJsScript(webDriver, getStopGetStatsDuringTestScript());
+      if (statsDeltaEncoding && statsOvertime != null) {
+        statsOvertime = decode(statsOvertime);
+      }
+      reportDownsampling();
+      reportAdaptiveSampling();
 
       // Writing stats to file and report
       String resDir = System.getProperty("user.dir");
       File res = new File(resDir + "/results/charts/");
       res.mkdirs();
+      if (statsFormat != StatsFormat.JSON || statsGzip) {
+        StatsSink sink = statsFormat.newSink(res, timestamp() + "_" + this.getClientID() + "_data",
+            statsGzip);
+        try {
+          for (int pc = 0; pc < statsOvertime.size(); pc++) {
+            for (Object sample : (List<?>) statsOvertime.get(pc)) {
+              sink.write(pc, sample);
+            }
+          }
+        } finally {
+          sink.close();
+        }
+        reportSink(sink);
+        logger.debug("Stopped");
+        return;
+      }
+      JSONArray jsonArray = new JSONArray(statsOvertime);
       BufferedWriter writer = new BufferedWriter(new FileWriter(res.toString() + "/" + timestamp() + "_" + this.getClientID() + "_data.json"));
       writer.write(jsonArray.toString(2));
       writer.close();
@@ -50,9 +110,81 @@ public class StopGetStatsStep extends TestStep {
     }
   }
   
+  /**
+   * Decodes the delta encoded samples of each peer connection.
+   *
+   * @param statsOvertime the samples of each peer connection, delta encoded
+   * @return the samples of each peer connection
+   */
+  private List<List<Object>> decode(List<?> statsOvertime) {
+    StatsDeltaDecoder decoder = new StatsDeltaDecoder();
+    List<List<Object>> decoded = new ArrayList<>();
+    for (int pc = 0; pc < statsOvertime.size(); pc++) {
+      List<Object> samples = new ArrayList<>();
+      for (Object sample : (List<?>) statsOvertime.get(pc)) {
+        samples.add(decoder.decode(pc, sample));
+      }
+      decoded.add(samples);
+    }
+    return decoded;
+  }
+
   private String getStopGetStatsDuringTestScript() {
+    if (statsDeltaEncoding) {
+      return "window.Running = false;"
+        + "return window.encodeStatsOvertime"
+        + "  ? window.encodeStatsOvertime(window.getStatsOvertime()) : window.StatsOvertime;";
+    }
     return "window.Running = false;"
-      + "return window.StatsOvertime;";
+      + "return window.getStatsOvertime ? window.getStatsOvertime() : window.StatsOvertime;";
+  }
+
+  /**
+   * Reports where the stats were written, instead of attaching them.
+   *
+   * @param sink the sink
+   */
+  private void reportSink(StatsSink sink) {
+    reporter.textAttachment(this.report, "stats overtime",
+        new JSONObject().put("file", sink.getFile().getPath())
+            .put("samples", sink.getSampleCount()).toString(2), "json");
+  }
+
+  /**
+   * Logs and reports the number of getStats() calls, the events that switched the sampling to the
+   * minimum interval, by reason, and the last interval, when the stats were sampled adaptively.
+   */
+  private void reportAdaptiveSampling() throws KiteTestException {
+    Map<?, ?> adaptive = (Map<?, ?>) executeJsScript(webDriver,
+        "return window.StatsAdaptive && window.StatsAdaptive.enabled"
+            + " ? {calls: window.StatsAdaptive.calls, events: window.StatsAdaptive.events,"
+            + " interval: window.StatsAdaptive.interval} : null;");
+    if (adaptive != null) {
+      JSONObject sampling = new JSONObject(adaptive);
+      logger.info("Adaptive stats sampling: " + sampling);
+      reporter.textAttachment(this.report, "stats adaptive sampling", sampling.toString(), "json");
+    }
+  }
+
+  /**
+   * Logs and reports the number of samples dropped or merged per peer connection, when the stats
+   * were collected with a capacity.
+   */
+  private void reportDownsampling() throws KiteTestException {
+    Map<?, ?> counts = (Map<?, ?>) executeJsScript(webDriver,
+        "return {dropped: window.StatsDropped || [], merged: window.StatsMerged || []};");
+    JSONObject downsampling = new JSONObject(counts);
+    boolean downsampled = false;
+    for (String key : downsampling.keySet()) {
+      JSONArray perPC = downsampling.getJSONArray(key);
+      for (int i = 0; i < perPC.length(); i++) {
+        downsampled |= perPC.getLong(i) > 0;
+      }
+    }
+    if (downsampled) {
+      logger.info("Stats samples dropped/merged per peer connection: " + downsampling);
+      reporter.textAttachment(this.report, "stats downsampling", downsampling.toString(), "json");
+    }
   }
   
 }
@@ -92,6 +92,7 @@ public abstract class TestStep {
       }
       reporter.processException(this.report, e, optional);
     }
+    StatsDrainer.drainIfDue(webDriver);
 //    if (!this.getClass().equals(GetSystemInfoStep.class)) {
 //      new GetSystemInfoStep(this.runner).processTestStep(this.stepPhase, this.report, this.stepPhase.equals(DEFAULT));
 //    }
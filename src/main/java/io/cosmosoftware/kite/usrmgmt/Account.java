@@ -5,6 +5,7 @@
 package io.cosmosoftware.kite.usrmgmt;
 
 import javax.json.JsonObject;
+import java.util.Objects;
 
 /**
  * The type Rc account.
@@ -32,6 +33,10 @@ public class Account extends Entity {
    * The Role.
    */
   protected AccountRole role;
+  /**
+   * The Session restored from the session cache when the account was retained.
+   */
+  protected volatile AccountSession session;
   /**
    * The Username.
    */
@@ -76,9 +81,15 @@ public class Account extends Entity {
 
   @Override
   public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Account)) {
+      return false;
+    }
     Account otherAcc = (Account) obj;
-    return (this.username.equals(otherAcc.getUserName()) &&
-        this.email.equals(otherAcc.getEmail()));
+    return Objects.equals(this.username, otherAcc.getUserName())
+        && Objects.equals(this.email, otherAcc.getEmail());
   }
 
   /**
@@ -157,6 +168,26 @@ public class Account extends Entity {
     this.role = role;
   }
 
+  /**
+   * Returns the session of the account, kept from a previous test, or null if the account has to
+   * log in again.
+   *
+   * @return the session
+   */
+  public AccountSession getSession() {
+    return session;
+  }
+
+  /**
+   * Sets the session of the account after logging in, so that it is kept for the next test when
+   * the account is released.
+   *
+   * @param session the session
+   */
+  public void setSession(AccountSession session) {
+    this.session = session;
+  }
+
   /**
    * Returns username.
    *
@@ -179,6 +210,11 @@ public class Account extends Entity {
     this.username = username;
   }
 
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.username, this.email);
+  }
+
   @Override
   public String toString() {
     return "[" + this.username
@@ -19,6 +19,7 @@ public class AccountCollection extends Entity {
   private final Map<AccountType, List<Account>> accountMap = new HashMap<>();
   private final KiteLogger logger = KiteLogger.getLogger(this.getClass().getName());
   private final int timeout;
+  private final int sessionTimeout;
 
   /**
    * Instantiates a new Rc account collection.
@@ -27,6 +28,7 @@ public class AccountCollection extends Entity {
    */
   public AccountCollection(JsonObject jsonObject) {
     this.timeout = jsonObject.getInt("timeout");
+    this.sessionTimeout = jsonObject.getInt("sessionTimeout", 30);
     List<Account> accountList;
 
     JsonArray jsonArray;
@@ -35,7 +37,9 @@ public class AccountCollection extends Entity {
       if (jsonArray != null) {
         accountList = Collections.synchronizedList(new ArrayList<>());;
         for (int i = 0; i < jsonArray.size(); i++) {
-          accountList.add(new Account(jsonArray.getJsonObject(i)));
+          Account account = new Account(jsonArray.getJsonObject(i));
+          account.setAccountType(accountType);
+          accountList.add(account);
         }
         accountMap.put(accountType, accountList);
       }
@@ -70,6 +74,15 @@ public class AccountCollection extends Entity {
     return timeout;
   }
 
+  /**
+   * Gets the time in minutes during which the session of an account is kept between tests.
+   *
+   * @return the session timeout
+   */
+  public int getSessionTimeout() {
+    return sessionTimeout;
+  }
+
   /**
    * Sets account list.
    *
@@ -7,6 +7,7 @@ package io.cosmosoftware.kite.usrmgmt;
 import io.cosmosoftware.kite.pool.ObjectFactory;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The type Rc account factory.
@@ -14,7 +15,7 @@ import java.util.List;
 public class AccountFactory implements ObjectFactory<Account> {
 
   private List<Account> accountList;
-  private int index;
+  private final AtomicInteger index = new AtomicInteger();
 
   /**
    * Instantiates a new Rc account factory.
@@ -27,7 +28,7 @@ public class AccountFactory implements ObjectFactory<Account> {
 
   @Override
   public Account createNew() {
-    return this.accountList.get(this.index++);
+    return this.accountList.get(this.index.getAndIncrement());
   }
 
 }
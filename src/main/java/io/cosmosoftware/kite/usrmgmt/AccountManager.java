@@ -4,25 +4,35 @@
 
 package io.cosmosoftware.kite.usrmgmt;
 
+import io.cosmosoftware.kite.pool.AsyncPool;
 import io.cosmosoftware.kite.pool.BlockingPool;
 import io.cosmosoftware.kite.pool.PoolFactory;
+import io.cosmosoftware.kite.pool.PoolMetrics;
 import io.cosmosoftware.kite.pool.TimeElapsedException;
+import io.cosmosoftware.kite.report.Reporter;
 
-import java.util.HashMap;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Singleton class for managing the accounts.
+ * <p>
+ * Each account type has its own lock-free pool: retaining an account of one type never waits for
+ * another type, and releasing an account never blocks.
  */
 public class AccountManager {
 
   private static AccountManager manager = new AccountManager();
-  private AccountCollection accountCollection;
-  private Map<AccountType, BlockingPool<Account>> accountPoolMap =
-      new HashMap<AccountType, BlockingPool<Account>>();
+  private volatile AccountCollection accountCollection;
+  private final Map<AccountType, AsyncPool<Account>> accountPoolMap = new ConcurrentHashMap<>();
+  private volatile AccountSessionCache sessionCache;
 
   /**
    * Gets instance.
@@ -33,6 +43,37 @@ public class AccountManager {
     return manager;
   }
 
+  private JsonObjectBuilder buildPoolMetrics() {
+    JsonObjectBuilder builder = Json.createObjectBuilder();
+    for (Map.Entry<AccountType, AsyncPool<Account>> entry : this.accountPoolMap.entrySet()) {
+      PoolMetrics metrics = entry.getValue().getMetrics();
+      if (metrics != null) {
+        builder.add(entry.getKey().name(), metrics.buildJsonObjectBuilder());
+      }
+    }
+    return builder;
+  }
+
+  /**
+   * Gets the metrics of the account pools, per account type.
+   *
+   * @return the pool metrics
+   */
+  public JsonObject getPoolMetrics() {
+    return buildPoolMetrics().build();
+  }
+
+  /**
+   * Registers the metrics of the account pools with the reporter of a test, so that they are
+   * logged and written to account-pools.json with its report files. Called by the test runner
+   * using the accounts.
+   *
+   * @param reporter the reporter
+   */
+  public void registerPoolMetrics(Reporter reporter) {
+    reporter.addReportFile("account-pools.json", this::buildPoolMetrics);
+  }
+
   /**
    * Init rc account manager.
    *
@@ -41,6 +82,8 @@ public class AccountManager {
    */
   public AccountManager init(AccountCollection accountCollection) {
     this.accountCollection = accountCollection;
+    this.sessionCache =
+        new AccountSessionCache(accountCollection.getSessionTimeout(), TimeUnit.MINUTES);
 
     Iterator<Map.Entry<AccountType, List<Account>>> iterator =
         this.accountCollection.getAccountMap().entrySet().iterator();
@@ -48,9 +91,9 @@ public class AccountManager {
       Map.Entry<AccountType, List<Account>> mapEntry = iterator.next();
       List<Account> accountList = mapEntry.getValue();
       if (accountList.size() > 0) {
-        this.accountPoolMap.put(mapEntry.getKey(), (BlockingPool<Account>) PoolFactory
-            .newBoundedBlockingPool(accountList.size(), new AccountFactory(accountList),
-                new AccountValidator()));
+        this.accountPoolMap.put(mapEntry.getKey(), PoolFactory
+            .newLockFreeBlockingPool(accountList.size(), new AccountFactory(accountList),
+                new AccountValidator(this.sessionCache)));
       }
     }
 
@@ -58,27 +101,60 @@ public class AccountManager {
   }
 
   /**
-   * Release account.
+   * Release account. The sessions of the other accounts that have expired are dropped from the
+   * session cache.
    *
    * @param account the account
    */
-  public synchronized void releaseAccount(Account account) {
-    if (this.accountPoolMap.get(account.getAccountType()) != null) {
-      this.accountPoolMap.get(account.getAccountType()).release(account);
+  public void releaseAccount(Account account) {
+    AccountType type = account.getAccountType();
+    BlockingPool<Account> pool = type == null ? null : this.accountPoolMap.get(type);
+    if (pool != null) {
+      this.sessionCache.purgeExpired();
+      this.sessionCache.put(account, account.getSession());
+      pool.release(account);
     }
   }
 
   /**
-   * Retain account rc account.
+   * Retain account rc account. The session the account had when it was last released is restored
+   * if it is still valid, see {@link Account#getSession()}.
    *
    * @param type the type
    * @return the rc account
    * @throws TimeElapsedException the time elapsed exception
    * @throws InterruptedException the interrupted exception
    */
-  public synchronized Account retainAccount(AccountType type)
+  public Account retainAccount(AccountType type)
       throws TimeElapsedException, InterruptedException {
-    return this.accountPoolMap.get(type).get(this.accountCollection.getTimeout(), TimeUnit.MINUTES);
+    return restoreSession(
+        getPool(type).get(this.accountCollection.getTimeout(), TimeUnit.MINUTES));
+  }
+
+  /**
+   * Retains an account without blocking the calling thread. The future completes with a
+   * {@link TimeElapsedException} if no account of this type is released within the timeout of the
+   * account collection.
+   *
+   * @param type the type
+   * @return the future rc account
+   */
+  public CompletableFuture<Account> retainAccountAsync(AccountType type) {
+    return getPool(type).acquireAsync(this.accountCollection.getTimeout(), TimeUnit.MINUTES)
+        .thenApply(this::restoreSession);
+  }
+
+  private Account restoreSession(Account account) {
+    account.setSession(this.sessionCache.get(account));
+    return account;
+  }
+
+  private AsyncPool<Account> getPool(AccountType type) {
+    AsyncPool<Account> pool = this.accountPoolMap.get(type);
+    if (pool == null) {
+      throw new IllegalArgumentException("No account of type " + type + " is available");
+    }
+    return pool;
   }
 
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.usrmgmt;
+
+import org.openqa.selenium.Cookie;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The login state of an account, kept between tests so that the next test retaining the account
+ * can restore it instead of logging in again.
+ */
+public class AccountSession {
+
+  private final Set<Cookie> cookies;
+  private final long expiresAt;
+  private final String token;
+
+  /**
+   * Instantiates a new Account session.
+   *
+   * @param token the session or access token, can be null
+   * @param cookies the session cookies, can be empty
+   * @param expiresAt the time at which the session expires, in milliseconds since the epoch, or 0
+   * if it only expires with the time to live of the cache
+   */
+  public AccountSession(String token, Set<Cookie> cookies, long expiresAt) {
+    this.token = token;
+    this.cookies = cookies == null ? Collections.emptySet()
+        : Collections.unmodifiableSet(new HashSet<>(cookies));
+    this.expiresAt = expiresAt > 0 ? expiresAt : Long.MAX_VALUE;
+  }
+
+  /**
+   * Instantiates a new Account session from the cookies of a logged in browser. The session
+   * expires with the first cookie that expires.
+   *
+   * @param cookies the session cookies
+   */
+  public AccountSession(Set<Cookie> cookies) {
+    this(null, cookies, earliestExpiry(cookies));
+  }
+
+  private static long earliestExpiry(Set<Cookie> cookies) {
+    long expiry = 0;
+    for (Cookie cookie : cookies) {
+      Date date = cookie.getExpiry();
+      if (date != null && (expiry == 0 || date.getTime() < expiry)) {
+        expiry = date.getTime();
+      }
+    }
+    return expiry;
+  }
+
+  /**
+   * Gets the session cookies.
+   *
+   * @return the cookies
+   */
+  public Set<Cookie> getCookies() {
+    return cookies;
+  }
+
+  /**
+   * Gets the time at which the session expires, in milliseconds since the epoch.
+   *
+   * @return the expiry time
+   */
+  public long getExpiresAt() {
+    return expiresAt;
+  }
+
+  /**
+   * Gets the session or access token.
+   *
+   * @return the token
+   */
+  public String getToken() {
+    return token;
+  }
+
+  /**
+   * Checks whether the session has expired.
+   *
+   * @param now the current time in milliseconds since the epoch
+   * @return true if the session has expired
+   */
+  public boolean isExpired(long now) {
+    return now >= expiresAt;
+  }
+
+  @Override
+  public String toString() {
+    // the token and cookie values are credentials, keep them out of the logs
+    return "[session; " + cookies.size() + " cookie(s); "
+        + (token != null ? "token; " : "") + "expires " + new Date(expiresAt) + "]";
+  }
+}
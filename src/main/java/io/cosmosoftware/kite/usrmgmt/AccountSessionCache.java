@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.usrmgmt;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the sessions of the pooled accounts between tests, for at most a given time to live.
+ * <p>
+ * The sessions are keyed by account instance, as the pools hand out the same instances from one
+ * test to the next, while two distinct accounts may have neither a username nor an email.
+ */
+public class AccountSessionCache {
+
+  private final Map<Account, Entry> sessions =
+      Collections.synchronizedMap(new IdentityHashMap<>());
+  private final long timeToLive;
+
+  /**
+   * Instantiates a new Account session cache.
+   *
+   * @param timeToLive the maximum time a session is kept
+   * @param unit the unit of the time to live
+   */
+  public AccountSessionCache(long timeToLive, TimeUnit unit) {
+    this.timeToLive = unit.toMillis(timeToLive);
+  }
+
+  /**
+   * Gets the session of the account, if it is still valid.
+   *
+   * @param account the account
+   * @return the session, or null if there is none or it has expired
+   */
+  public AccountSession get(Account account) {
+    Entry entry = sessions.get(account);
+    if (entry == null) {
+      return null;
+    }
+    long now = System.currentTimeMillis();
+    if (now >= entry.cachedUntil || entry.session.isExpired(now)) {
+      sessions.remove(account, entry);
+      return null;
+    }
+    return entry.session;
+  }
+
+  /**
+   * Removes the session of the account.
+   *
+   * @param account the account
+   */
+  public void invalidate(Account account) {
+    sessions.remove(account);
+  }
+
+  /**
+   * Removes the sessions that have expired.
+   */
+  public void purgeExpired() {
+    long now = System.currentTimeMillis();
+    synchronized (sessions) {
+      sessions.values()
+          .removeIf(entry -> now >= entry.cachedUntil || entry.session.isExpired(now));
+    }
+  }
+
+  /**
+   * Stores the session of the account, replacing the previous one. A null session removes it.
+   *
+   * @param account the account
+   * @param session the session
+   */
+  public void put(Account account, AccountSession session) {
+    if (session == null) {
+      invalidate(account);
+    } else {
+      sessions.put(account, new Entry(session, System.currentTimeMillis() + timeToLive));
+    }
+  }
+
+  /**
+   * Gets the number of cached sessions, expired ones included.
+   *
+   * @return the size
+   */
+  public int size() {
+    return sessions.size();
+  }
+
+  private static final class Entry {
+
+    private final long cachedUntil;
+    private final AccountSession session;
+
+    private Entry(AccountSession session, long cachedUntil) {
+      this.session = session;
+      this.cachedUntil = cachedUntil;
+    }
+  }
+}
@@ -11,9 +11,31 @@ import io.cosmosoftware.kite.pool.Pool.Validator;
  */
 public class AccountValidator implements Validator<Account> {
 
+  private final AccountSessionCache sessionCache;
+
+  /**
+   * Instantiates a new Rc account validator.
+   */
+  public AccountValidator() {
+    this(null);
+  }
+
+  /**
+   * Instantiates a new Rc account validator that drops the cached session of the accounts it
+   * invalidates.
+   *
+   * @param sessionCache the session cache
+   */
+  public AccountValidator(AccountSessionCache sessionCache) {
+    this.sessionCache = sessionCache;
+  }
+
   @Override
   public void invalidate(Account account) {
-    // Do Nothing
+    if (this.sessionCache != null) {
+      this.sessionCache.invalidate(account);
+    }
+    account.setSession(null);
   }
 
   @Override
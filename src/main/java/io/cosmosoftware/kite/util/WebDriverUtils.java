@@ -30,6 +30,7 @@ import io.cosmosoftware.kite.exception.KiteInteractionException;
 import io.cosmosoftware.kite.exception.KiteTestException;
 import io.cosmosoftware.kite.report.KiteLogger;
 import io.cosmosoftware.kite.report.Status;
+import io.cosmosoftware.kite.steps.StartGetStatsStep;
 import org.openqa.selenium.*;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.remote.RemoteWebDriver;
@@ -118,7 +119,8 @@ public class WebDriverUtils {
   }
 
   /**
-   * Close drivers.
+   * Close drivers. The stats still drained from a web driver are written and their sink closed
+   * first, see {@link StartGetStatsStep#stopDrainingStats(WebDriver)}.
    *
    * @param webDriverList the web driver list
    */
@@ -127,6 +129,7 @@ public class WebDriverUtils {
       logger.info("Closing down webDrivers");
       for (WebDriver webDriver : webDriverList) {
         if (webDriver != null) {
+          StartGetStatsStep.stopDrainingStats(webDriver);
           try {
             // Open about:config in case of fennec (Firefox for Android) and close.
             if (((RemoteWebDriver) webDriver).getCapabilities().getBrowserName()
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ElasticBlockingPoolTest {
+
+  private static final int MIN_IDLE = 1;
+  private static final int MAX_SIZE = 4;
+  private static final long IDLE_TIMEOUT = 50;
+
+  private final AtomicInteger invalidated = new AtomicInteger();
+
+  private final Pool.Validator<Object> validator = new Pool.Validator<Object>() {
+    @Override
+    public void invalidate(Object o) {
+      invalidated.incrementAndGet();
+    }
+
+    @Override
+    public boolean isValid(Object o) {
+      return true;
+    }
+  };
+
+  @Test
+  void createsObjectsLazilyUpToMaxSize() throws TimeElapsedException {
+    ElasticBlockingPool<Object> pool =
+        new ElasticBlockingPool<>(MIN_IDLE, MAX_SIZE, 60000, validator, Object::new);
+    assertEquals(MIN_IDLE, pool.getCreatedCount());
+    List<Object> objects = new ArrayList<>();
+    for (int i = 0; i < MAX_SIZE; i++) {
+      objects.add(pool.get());
+      assertEquals(Math.max(MIN_IDLE, i + 1), pool.getCreatedCount());
+    }
+    assertThrows(TimeElapsedException.class, () -> pool.get(10, TimeUnit.MILLISECONDS));
+    assertEquals(MAX_SIZE, pool.getCreatedCount());
+    for (Object o : objects) {
+      pool.release(o);
+    }
+    assertEquals(MAX_SIZE, pool.getIdleCount());
+    pool.get(10, TimeUnit.MILLISECONDS);
+    assertEquals(MAX_SIZE, pool.getCreatedCount());
+    pool.shutdown();
+  }
+
+  @Test
+  void evictsIdleObjectsDownToMinIdle() throws InterruptedException {
+    ElasticBlockingPool<Object> pool =
+        new ElasticBlockingPool<>(MIN_IDLE, MAX_SIZE, IDLE_TIMEOUT, validator, Object::new);
+    List<Object> objects = new ArrayList<>();
+    for (int i = 0; i < MAX_SIZE; i++) {
+      objects.add(pool.get());
+    }
+    for (Object o : objects) {
+      pool.release(o);
+    }
+    long deadline = System.currentTimeMillis() + 5000;
+    while (pool.getIdleCount() > MIN_IDLE && System.currentTimeMillis() < deadline) {
+      Thread.sleep(IDLE_TIMEOUT);
+    }
+    assertEquals(MIN_IDLE, pool.getIdleCount());
+    Thread.sleep(4 * IDLE_TIMEOUT);
+    assertEquals(MIN_IDLE, pool.getIdleCount());
+    assertEquals(MIN_IDLE, pool.getCreatedCount());
+    assertEquals(MAX_SIZE - MIN_IDLE, invalidated.get());
+    pool.shutdown();
+  }
+
+  @Test
+  void shutdownWakesTheBlockedThreads() throws InterruptedException {
+    ElasticBlockingPool<Object> pool =
+        new ElasticBlockingPool<>(0, 1, 60000, validator, Object::new);
+    Object held = pool.get();
+    List<Thread> waiters = new ArrayList<>();
+    List<AtomicReference<Throwable>> thrown = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      AtomicReference<Throwable> failure = new AtomicReference<>();
+      Thread waiter = new Thread(() -> {
+        try {
+          pool.get();
+        } catch (Throwable t) {
+          failure.set(t);
+        }
+      });
+      waiter.start();
+      waiters.add(waiter);
+      thrown.add(failure);
+    }
+    long deadline = System.currentTimeMillis() + 5000;
+    for (Thread waiter : waiters) {
+      while (waiter.getState() != Thread.State.WAITING) {
+        assertTrue(System.currentTimeMillis() < deadline, "the thread did not block");
+        Thread.sleep(5);
+      }
+    }
+    pool.shutdown();
+    for (int i = 0; i < waiters.size(); i++) {
+      waiters.get(i).join(5000);
+      assertFalse(waiters.get(i).isAlive(), "the thread is still blocked in get()");
+      assertTrue(thrown.get(i).get() instanceof IllegalStateException);
+    }
+    assertThrows(IllegalStateException.class, pool::get);
+    pool.release(held);
+    assertEquals(1, invalidated.get());
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LockFreeBlockingPoolTest {
+
+  private static final int SIZE = 3;
+  private static final int THREADS = 8;
+  private static final int ITERATIONS = 2000;
+
+  private final AtomicInteger invalidated = new AtomicInteger();
+
+  private final Pool.Validator<Object> validator = new Pool.Validator<Object>() {
+    @Override
+    public void invalidate(Object o) {
+      invalidated.incrementAndGet();
+    }
+
+    @Override
+    public boolean isValid(Object o) {
+      return true;
+    }
+  };
+
+  private static void awaitParked(Thread thread) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (thread.getState() != Thread.State.WAITING) {
+      assertTrue(System.currentTimeMillis() < deadline, "the thread did not block");
+      Thread.sleep(5);
+    }
+  }
+
+  @Test
+  void concurrentGetAndReleaseNeverShareAnObject() throws InterruptedException {
+    LockFreeBlockingPool<Object> pool = new LockFreeBlockingPool<>(SIZE, validator, Object::new);
+    Set<Object> inUse = Collections.synchronizedSet(
+        Collections.newSetFromMap(new IdentityHashMap<>()));
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[THREADS];
+    for (int i = 0; i < THREADS; i++) {
+      threads[i] = new Thread(() -> {
+        try {
+          start.await();
+          for (int j = 0; j < ITERATIONS; j++) {
+            Object o = pool.get();
+            assertTrue(inUse.add(o), "an object was handed out twice");
+            assertTrue(inUse.size() <= SIZE);
+            inUse.remove(o);
+            pool.release(o);
+          }
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        }
+      });
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join(30000);
+      assertFalse(thread.isAlive(), "a thread is still blocked in get()");
+    }
+    assertNull(failure.get());
+    assertEquals(SIZE, pool.getIdleCount());
+    assertEquals(0, pool.getMetrics().getInUseCount());
+    pool.shutdown();
+    assertEquals(SIZE, invalidated.get());
+  }
+
+  @Test
+  void shutdownWakesTheBlockedThreads() throws InterruptedException {
+    LockFreeBlockingPool<Object> pool = new LockFreeBlockingPool<>(1, validator, Object::new);
+    Object held = pool.get();
+    AtomicReference<Throwable> thrown = new AtomicReference<>();
+    Thread waiter = new Thread(() -> {
+      try {
+        pool.get();
+      } catch (Throwable t) {
+        thrown.set(t);
+      }
+    });
+    waiter.start();
+    awaitParked(waiter);
+    pool.shutdown();
+    waiter.join(5000);
+    assertFalse(waiter.isAlive(), "the thread is still blocked in get()");
+    assertTrue(thrown.get() instanceof IllegalStateException);
+    assertThrows(IllegalStateException.class, pool::get);
+    pool.release(held);
+    assertEquals(1, invalidated.get());
+  }
+
+  @Test
+  void releaseHandsTheObjectToTheBlockedThread() throws InterruptedException {
+    LockFreeBlockingPool<Object> pool = new LockFreeBlockingPool<>(1, validator, Object::new);
+    Object held = pool.get();
+    AtomicReference<Object> received = new AtomicReference<>();
+    Thread waiter = new Thread(() -> received.set(pool.get()));
+    waiter.start();
+    awaitParked(waiter);
+    pool.release(held);
+    waiter.join(5000);
+    assertSame(held, received.get(), "the released object was not handed over");
+    assertEquals(0, pool.getIdleCount());
+    pool.shutdown();
+  }
+}
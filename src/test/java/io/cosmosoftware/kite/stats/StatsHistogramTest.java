@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) CoSMo Software Consulting Pte. Ltd. - All Rights Reserved
+ */
+
+package io.cosmosoftware.kite.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsHistogramTest {
+
+  private static final int SIGNIFICANT_DIGITS = 3;
+  private static final double RESOLUTION = 0.01;
+  private static final double[] PERCENTILES = {0, 1, 10, 25, 50, 75, 90, 95, 99, 99.9, 100};
+
+  private static double exactPercentile(double[] sorted, double percentile) {
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * sorted.length));
+    return sorted[(int) Math.min(rank, sorted.length) - 1];
+  }
+
+  private static double[] randomValues(Random random, int count) {
+    double[] values = new double[count];
+    for (int i = 0; i < count; i++) {
+      // log-uniform between 0.1 and 100000, to cover many bucket magnitudes
+      values[i] = Math.pow(10, random.nextDouble() * 6 - 1);
+    }
+    return values;
+  }
+
+  private static void assertWithinBounds(StatsHistogram histogram, double[] values) {
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    for (double percentile : PERCENTILES) {
+      double exact = exactPercentile(sorted, percentile);
+      double estimate = histogram.getPercentile(percentile);
+      double bound = exact * Math.pow(10, -SIGNIFICANT_DIGITS) + RESOLUTION;
+      assertTrue(Math.abs(estimate - exact) <= bound,
+          "p" + percentile + ": " + estimate + " instead of " + exact);
+    }
+    assertEquals(sorted[0], histogram.getMin());
+    assertEquals(sorted[sorted.length - 1], histogram.getMax());
+    assertEquals(Arrays.stream(values).average().getAsDouble(), histogram.getMean(), 1e-6);
+  }
+
+  @Test
+  void percentilesAreWithinTheRelativeError() {
+    Random random = new Random(42);
+    double[] values = randomValues(random, 100000);
+    StatsHistogram histogram = new StatsHistogram(SIGNIFICANT_DIGITS, RESOLUTION);
+    for (double value : values) {
+      histogram.record(value);
+    }
+    assertEquals(values.length, histogram.getCount());
+    assertWithinBounds(histogram, values);
+  }
+
+  @Test
+  void ignoresInvalidValues() {
+    StatsHistogram histogram = new StatsHistogram(SIGNIFICANT_DIGITS, RESOLUTION);
+    histogram.record(-1);
+    histogram.record(Double.NaN);
+    histogram.record(Double.POSITIVE_INFINITY);
+    histogram.record(5, 0);
+    assertEquals(0, histogram.getCount());
+    assertTrue(Double.isNaN(histogram.getPercentile(50)));
+    histogram.record(12.5, 4);
+    assertEquals(4, histogram.getCount());
+    assertEquals(12.5, histogram.getPercentile(50));
+  }
+
+  @Test
+  void mergeEqualsRecordingAllTheValues() {
+    Random random = new Random(7);
+    double[] small = new double[20000];
+    for (int i = 0; i < small.length; i++) {
+      small[i] = random.nextDouble() * 10;
+    }
+    double[] large = randomValues(random, 30000);
+    StatsHistogram first = new StatsHistogram(SIGNIFICANT_DIGITS, RESOLUTION);
+    StatsHistogram second = new StatsHistogram(SIGNIFICANT_DIGITS, RESOLUTION);
+    StatsHistogram combined = new StatsHistogram(SIGNIFICANT_DIGITS, RESOLUTION);
+    for (double value : small) {
+      first.record(value);
+      combined.record(value);
+    }
+    for (double value : large) {
+      second.record(value);
+      combined.record(value);
+    }
+    first.merge(second);
+    assertEquals(combined.getCount(), first.getCount());
+    assertEquals(combined.getMin(), first.getMin());
+    assertEquals(combined.getMax(), first.getMax());
+    assertEquals(combined.getMean(), first.getMean(), 1e-9);
+    for (double percentile : PERCENTILES) {
+      assertEquals(combined.getPercentile(percentile), first.getPercentile(percentile));
+    }
+    double[] all = Arrays.copyOf(small, small.length + large.length);
+    System.arraycopy(large, 0, all, small.length, large.length);
+    assertWithinBounds(first, all);
+  }
+
+  @Test
+  void mergeRejectsDifferentPrecisions() {
+    StatsHistogram histogram = new StatsHistogram(SIGNIFICANT_DIGITS, RESOLUTION);
+    assertThrows(IllegalArgumentException.class,
+        () -> histogram.merge(new StatsHistogram(2, RESOLUTION)));
+    assertThrows(IllegalArgumentException.class,
+        () -> histogram.merge(new StatsHistogram(SIGNIFICANT_DIGITS, 1)));
+    assertThrows(IllegalArgumentException.class, () -> histogram.merge(histogram));
+  }
+}